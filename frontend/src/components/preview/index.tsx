@@ -1,28 +1,36 @@
+import { useQueryClient } from '@tanstack/react-query';
 import { useEffect } from 'react';
 import Cover from '@/components/cover';
 import { usePlaybackStore } from '@/lib/context';
 import { useWebSocketClient } from '@/lib/context/WebSocketContext.tsx';
 import {
-	OnPlaybackSongUpdateDocument,
+	OnPlaybackStateUpdateDocument,
+	playbackStatusQueryKey,
 	useGetPlaybackStatusQuery,
 } from '@/lib/queries';
+import type { IPlaybackStatus } from '@/type';
 
 export default function Preview() {
-	const { data, refetch } = useGetPlaybackStatusQuery();
+	const { data } = useGetPlaybackStatusQuery();
 	const { updatePlaybackModalState } = usePlaybackStore();
+	const queryClient = useQueryClient();
 	const graphQLClient = useWebSocketClient();
 
 	useEffect(() => {
 		const unsubscribe = graphQLClient.subscribe<{
-			OnPlaybackSongUpdate: boolean;
+			OnPlaybackStateUpdate: IPlaybackStatus;
 		}>(
 			{
-				query: OnPlaybackSongUpdateDocument,
+				query: OnPlaybackStateUpdateDocument,
 			},
 			{
 				next: (data) => {
-					if (data.data?.OnPlaybackSongUpdate === true) {
-						refetch();
+					const status = data.data?.OnPlaybackStateUpdate;
+					if (status) {
+						// the server pushes the new state, no need to query it again
+						queryClient.setQueryData(playbackStatusQueryKey, {
+							PlaybackStatus: status,
+						});
 					}
 				},
 				error: (error) => {
@@ -35,7 +43,7 @@ export default function Preview() {
 		);
 
 		return () => unsubscribe();
-	}, [graphQLClient, refetch]);
+	}, [graphQLClient, queryClient]);
 
 	return (
 		<div className="w-full shadow-md sm:hidden">
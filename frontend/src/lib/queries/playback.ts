@@ -21,7 +21,7 @@ const PlaybackStatusQueryDocument = /* GraphQL */ `
   }
 `;
 
-const playbackStatusQueryKey = [PlaybackStatusQueryDocument];
+export const playbackStatusQueryKey = [PlaybackStatusQueryDocument];
 
 export function useGetPlaybackStatusQuery(options?: {
 	enabled?: boolean;
@@ -191,3 +191,21 @@ export const OnPlaybackSongUpdateDocument = /* GraphQL */ `
     OnPlaybackSongUpdate
   }
 `;
+
+export const OnPlaybackStateUpdateDocument = /* GraphQL */ `
+  subscription OnPlaybackStateUpdate {
+    OnPlaybackStateUpdate {
+      playing
+      elapsed
+      loopId
+      song {
+        name
+        path
+        artists
+        albumId
+        album
+        duration
+      }
+    }
+  }
+`;
@@ -53,6 +53,7 @@ export interface IPlaybackStatus {
 	playing: boolean;
 	elapsed: number;
 	loopId: number;
+	position?: number;
 	song?: ISong;
 }
 
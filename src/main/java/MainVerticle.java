@@ -25,6 +25,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import static config.ServerConfig.verifyAndSetupConfig;
+import static enums.WorkerAction.CATALOG_UPDATE;
+import static enums.WorkerAction.DATABASE_UPDATE;
 
 public final class MainVerticle extends VerticleBase {
     private static final Logger LOGGER = LogManager.getLogger(MainVerticle.class);
@@ -54,8 +56,13 @@ public final class MainVerticle extends VerticleBase {
                 .compose(ServerConfig::verifyAndSetupConfig)
                 .compose(config -> {
                     databaseService = DatabaseService.create(vertx, config);
+                    // caches above the service are only dropped once it serves the updated library
+                    vertx.eventBus().consumer(DATABASE_UPDATE.name(), __ -> databaseService
+                            .refreshCatalog()
+                            .onComplete(ignored -> vertx.eventBus().publish(CATALOG_UPDATE.name(), null)));
                     final PlaylistService playlistService = PlaylistService.create(vertx, databaseService);
                     return databaseService.initialization()
+                                          .compose(__ -> databaseService.refreshCatalog())
                                           .compose(__ -> playlistService.validatePlaylists())
                                           .compose(__ -> Future.all(deployEventLoopVertical(new WebServerVerticle(databaseService, playlistService), config),
                                                                     deployVerticle(new PlayerVerticle(databaseService, playlistService),
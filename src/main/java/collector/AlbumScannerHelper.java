@@ -1,6 +1,8 @@
 package collector;
 
 import models.SongData;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.jaudiotagger.audio.AudioFile;
 import org.jaudiotagger.audio.AudioFileIO;
 import org.jaudiotagger.audio.SupportedFileFormat;
@@ -14,16 +16,32 @@ import org.jaudiotagger.tag.images.Artwork;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public final class AlbumScannerHelper {
+    private static final Logger LOGGER = LogManager.getLogger(AlbumScannerHelper.class);
+
+    // number of in-flight parse tasks per worker, keeps workers busy without queueing the whole library
+    private static final int PARSE_WINDOW_FACTOR = 4;
+
     private static final Set<String> ALLOWED_EXT = Arrays.stream(SupportedFileFormat.values())
                                                          .map(SupportedFileFormat::getFilesuffix)
                                                          .collect(Collectors.toSet());
@@ -31,13 +49,60 @@ public final class AlbumScannerHelper {
     private AlbumScannerHelper() {
     }
 
-    static List<String> retrieveSongPaths(final String directoryPath) throws IOException {
-        try (Stream<Path> walk = Files.walk(Path.of(directoryPath))) {
-            return walk.map(Path::toFile)
-                       .filter(File::isFile)
-                       .filter(file -> !file.isHidden() && ALLOWED_EXT.contains(getExtension(file.getName())))
-                       .map(File::getAbsolutePath)
-                       .toList();
+    static List<SongFile> retrieveSongFiles(final String directoryPath) throws IOException {
+        final List<SongFile> songFiles = new ArrayList<>();
+        Files.walkFileTree(Path.of(directoryPath), new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                final BasicFileAttributes fileAttributes = attrs.isSymbolicLink()
+                                                           ? Files.readAttributes(file, BasicFileAttributes.class)
+                                                           : attrs;
+                if (fileAttributes.isRegularFile() && isSongFile(file.toFile())) {
+                    songFiles.add(new SongFile(file.toAbsolutePath().toString(),
+                                               fileAttributes.lastModifiedTime().toMillis(),
+                                               fileAttributes.size()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return songFiles;
+    }
+
+    /**
+     * Parse tags of the given files concurrently and hand the results to the consumer in the order of the input paths,
+     * so the outcome is identical to parsing them one by one. Files that fail to parse are logged and skipped.
+     *
+     * @param paths       song file paths
+     * @param parallelism number of files parsed at the same time
+     * @param consumer    receive parsed payloads on the calling thread
+     */
+    static void parseTags(final List<String> paths, final int parallelism, final Consumer<SongPayload> consumer) {
+        final int window = parallelism * PARSE_WINDOW_FACTOR;
+        final Deque<Future<SongPayload>> pending = new ArrayDeque<>(window);
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                                                                     Thread.ofPlatform()
+                                                                           .name("tag-parser-", 0)
+                                                                           .daemon(true)
+                                                                           .factory())) {
+            final Iterator<String> iterator = paths.iterator();
+            while (iterator.hasNext() || !pending.isEmpty()) {
+                while (iterator.hasNext() && pending.size() < window) {
+                    final String path = iterator.next();
+                    pending.add(executor.submit(() -> {
+                        LOGGER.info("Parsing song: {}", path);
+                        return parseTag(path);
+                    }));
+                }
+                try {
+                    consumer.accept(pending.remove().get());
+                } catch (ExecutionException e) {
+                    LOGGER.error("Fail to parse song data", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.error("Interrupted while parsing song data", e);
+            pending.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -50,7 +115,7 @@ public final class AlbumScannerHelper {
         final AudioFile f = AudioFileIO.read(filePath.toFile());
         final Tag tag = f.getTag();
 
-        final Artwork artwork = tag.getFirstArtwork();
+        final boolean hasArtwork = !tag.getArtworkList().isEmpty();
 
         final BasicFileAttributes fileAttributes = Files.readAttributes(filePath, BasicFileAttributes.class);
         final int disc = parseFractionValue(tag.getFirst(FieldKey.DISC_NO));
@@ -70,9 +135,24 @@ public final class AlbumScannerHelper {
                                      .duration(f.getAudioHeader().getTrackLength())
                                      .mtime(fileAttributes.lastModifiedTime().toMillis())
                                      .atime(fileAttributes.creationTime().toMillis())
+                                     .size(fileAttributes.size())
                                      .build();
 
-        return new SongPayload(songData, artwork);
+        return new SongPayload(songData, hasArtwork);
+    }
+
+    static Optional<byte[]> readArtwork(final String path) throws CannotReadException,
+                                                                  TagException,
+                                                                  InvalidAudioFrameException,
+                                                                  ReadOnlyFileException,
+                                                                  IOException {
+        final AudioFile f = AudioFileIO.read(Path.of(path).toFile());
+        final Artwork artwork = f.getTag().getFirstArtwork();
+        return Optional.ofNullable(artwork).map(Artwork::getBinaryData);
+    }
+
+    private static boolean isSongFile(final File file) {
+        return !file.isHidden() && ALLOWED_EXT.contains(getExtension(file.getName()));
     }
 
     private static String getExtension(final String fileName) {
@@ -4,38 +4,46 @@ import config.ServerConfig;
 import database.DatabaseService;
 import io.vertx.core.Future;
 import io.vertx.core.VerticleBase;
-import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.EventBus;
-import io.vertx.core.file.FileSystem;
+import io.vertx.core.json.JsonObject;
 import models.AlbumData;
 import models.SongData;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.jaudiotagger.tag.images.Artwork;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
-import static collector.AlbumScannerHelper.parseTag;
-import static collector.AlbumScannerHelper.retrieveSongPaths;
-import static collector.ImageOptimizer.optimize;
+import static collector.AlbumScannerHelper.parseTags;
+import static collector.AlbumScannerHelper.readArtwork;
+import static collector.AlbumScannerHelper.retrieveSongFiles;
 import static config.ServerConfig.coverSourceDimension;
 import static config.ServerConfig.coverVariants;
+import static config.ServerConfig.isLibraryWatchEnabled;
+import static config.ServerConfig.libraryWatchDebounce;
 import static config.ServerConfig.musicDirectory;
+import static config.ServerConfig.scanBatchSize;
+import static config.ServerConfig.scanParallelism;
 import static enums.WorkerAction.DATABASE_UPDATE;
 import static enums.WorkerAction.SCAN_DIRECTORY;
+import static enums.WorkerAction.SCAN_PROGRESS;
 import static enums.WorkerAction.UPDATE_DIRECTORY;
 
 public final class AudioDataCollectorVerticle extends VerticleBase {
@@ -48,12 +56,29 @@ public final class AudioDataCollectorVerticle extends VerticleBase {
                                                .daemon(true)
                                                .factory());
 
+    private static final ExecutorService SCAN_EXECUTOR =
+            Executors.newSingleThreadExecutor(Thread.ofPlatform()
+                                                    .name("library-scan")
+                                                    .daemon(true)
+                                                    .factory());
+
+    // progress is published at most once per interval, however fast songs are parsed
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+
     private final AtomicBoolean running = new AtomicBoolean(false);
 
+    private final ScanProgress scanProgress = new ScanProgress();
+
+    private volatile long progressTimer;
+
+    // changed paths reported by the library watcher while another scan is running
+    private final Set<String> pendingSyncPaths = ConcurrentHashMap.newKeySet();
+
     private final DatabaseService databaseService;
 
-    private FileSystem fileSystem;
+    private ImageOptimizer imageOptimizer;
     private EventBus eventBus;
+    private LibraryWatcher libraryWatcher;
 
     public AudioDataCollectorVerticle(final DatabaseService databaseService) {
         this.databaseService = databaseService;
@@ -61,18 +86,79 @@ public final class AudioDataCollectorVerticle extends VerticleBase {
 
     @Override
     public Future<?> start() {
-        fileSystem = vertx.fileSystem();
+        imageOptimizer = ImageOptimizer.create(config());
         eventBus = vertx.eventBus();
 
-        eventBus.consumer(UPDATE_DIRECTORY.name(), __ -> scanDirectory(musicDirectory(config()), true));
+        // covers are in place before any scan saves covers under the new album ids
+        return moveRenumberedCovers().onComplete(__ -> {
+            eventBus.consumer(UPDATE_DIRECTORY.name(), message -> scanDirectory(musicDirectory(config()), true, false));
+
+            // an explicit Build always starts over, journal of an interrupted Build is only picked up on startup
+            eventBus.consumer(SCAN_DIRECTORY.name(), message -> scanDirectory(musicDirectory(config()), false, false));
+
+            if (isLibraryWatchEnabled(config())) {
+                startLibraryWatcher();
+            }
+
+            final String root = musicDirectory(config());
+            if (ScanJournal.isInterrupted(Path.of(ServerConfig.SCAN_JOURNAL_PATH), root)) {
+                LOGGER.info("Resume interrupted Build of {}", root);
+                context.runOnContext(ignored -> scanDirectory(root, false, true));
+            }
+        });
+    }
 
-        eventBus.consumer(SCAN_DIRECTORY.name(), __ -> scanDirectory(musicDirectory(config()), false));
+    /**
+     * Rename covers of albums the database renumbered. The renumbering is forgotten once every cover is moved aside,
+     * and covers moved aside are put in place on every start, so a cover is never moved twice after an interruption.
+     * Covers failing to move are left as they are and replaced by the next Build.
+     */
+    private Future<Void> moveRenumberedCovers() {
+        final Path coverDirectory = Path.of(ServerConfig.COVER_PATH);
+        return databaseService.albumIdChanges()
+                              .compose(albumIds -> {
+                                  if (albumIds.isEmpty()) {
+                                      return Future.succeededFuture();
+                                  }
+                                  try {
+                                      CoverStore.moveCovers(coverDirectory, albumIds);
+                                  } catch (IOException e) {
+                                      return Future.failedFuture(e);
+                                  }
+                                  LOGGER.info("Moved covers of {} renumbered albums.", albumIds.size());
+                                  return databaseService.clearAlbumIdChanges();
+                              })
+                              .compose(__ -> {
+                                  try {
+                                      CoverStore.finishMovedCovers(coverDirectory);
+                                      return Future.<Void>succeededFuture();
+                                  } catch (IOException e) {
+                                      return Future.failedFuture(e);
+                                  }
+                              })
+                              .recover(e -> {
+                                  LOGGER.error("Fail to move covers of renumbered albums.", e);
+                                  return Future.succeededFuture();
+                              });
+    }
 
-        return Future.succeededFuture();
+    private void startLibraryWatcher() {
+        try {
+            libraryWatcher = new LibraryWatcher(Path.of(musicDirectory(config())),
+                                                libraryWatchDebounce(config()),
+                                                paths -> context.runOnContext(__ -> syncSongPaths(paths)));
+            libraryWatcher.start();
+        } catch (IOException e) {
+            LOGGER.error("Fail to watch music directory, use Update to pick up changes.", e);
+        }
     }
 
     @Override
     public Future<?> stop() throws Exception {
+        if (libraryWatcher != null) {
+            libraryWatcher.close();
+        }
+        SCAN_EXECUTOR.shutdown();
         IMAGE_OPTIMIZATION_EXECUTOR.shutdown();
         try {
             if (!IMAGE_OPTIMIZATION_EXECUTOR.awaitTermination(30, TimeUnit.MINUTES)) {
@@ -84,74 +170,227 @@ public final class AudioDataCollectorVerticle extends VerticleBase {
         return super.stop();
     }
 
-    private void scanDirectory(final String root, final boolean update) {
+    /**
+     * @param root   music directory
+     * @param update whether to update the library in place instead of a Build
+     * @param resume whether a Build continues from the journal of an interrupted Build
+     */
+    private void scanDirectory(final String root, final boolean update, final boolean resume) {
         try {
             if (!running.compareAndSet(false, true)) {
                 LOGGER.info("Already scanning the directory.");
                 return;
             }
             LOGGER.info("Start scanning directory: {}", root);
-            final List<String> songPaths = retrieveSongPaths(root);
+            startProgress();
+            final List<SongFile> songFiles = retrieveSongFiles(root);
+            scanProgress.discovered(songFiles.size());
 
             if (update) {
-                databaseService.songPaths()
-                               .flatMap(songPathsFromDatabase -> {
-                                   final var dbPathSet = new HashSet<>(songPathsFromDatabase);
-                                   final var fsPathSet = new HashSet<>(songPaths);
-
-                                   final List<String> songPathsNotInDB = songPaths.stream()
-                                                                                  .filter(o -> !dbPathSet.contains(o))
-                                                                                  .toList();
-
-                                   final List<String> deletedSongPaths = songPathsFromDatabase.stream()
-                                                                                              .filter(o -> !fsPathSet.contains(o))
-                                                                                              .toList();
-                                   if (!deletedSongPaths.isEmpty()) {
-                                       LOGGER.info("{} song need to delete.", deletedSongPaths.size());
-                                       return databaseService.removeSongs(deletedSongPaths)
-                                                             .map(__ -> songPathsNotInDB);
-                                   }
-                                   return Future.succeededFuture(songPathsNotInDB);
-                               })
-                               .onSuccess(songPathsNotInDB -> {
-                                   if (!songPathsNotInDB.isEmpty()) {
-                                       LOGGER.info("{} songs to add.", songPathsNotInDB.size());
-                                       parseSongData(songPathsNotInDB);
-                                   } else {
-                                       LOGGER.info("Nothing to update.");
-                                       eventBus.publish(DATABASE_UPDATE.name(), true);
-                                       running.set(false);
-                                   }
-                               })
-                               .onFailure(err -> {
-                                   LOGGER.error(err);
-                                   running.set(false);
-                               });
-            } else {
-                databaseService.clearDatabase()
-                               .onSuccess(__ -> {
-                                   LOGGER.info("Start parsing {} song files.", songPaths.size());
-                                   parseSongData(songPaths);
-                               })
-                               .onFailure(err -> {
-                                   LOGGER.error(err);
-                                   running.set(false);
-                               });
+                updateSongFiles(songFiles, databaseService.songFileStats());
+                return;
+            }
 
+            final Optional<ScanJournal> interruptedJournal = resume
+                                                             ? ScanJournal.resume(Path.of(ServerConfig.SCAN_JOURNAL_PATH), root)
+                                                             : Optional.empty();
+            if (interruptedJournal.isPresent()) {
+                resumeSongFiles(root, songFiles, interruptedJournal.get());
+            } else {
+                rebuildSongFiles(root, songFiles);
             }
         } catch (IOException e) {
             LOGGER.error("Failed to retrieve song paths from directory: {}", root, e);
-            running.set(false);
+            finishScan();
+        }
+    }
+
+    /**
+     * Build the library from ground up into shadow tables, the current library is replaced once the Build completes.
+     *
+     * @param root      music directory
+     * @param songFiles song files found in the file system
+     */
+    private void rebuildSongFiles(final String root, final List<SongFile> songFiles) {
+        final ScanJournal journal;
+        try {
+            journal = ScanJournal.start(Path.of(ServerConfig.SCAN_JOURNAL_PATH), root);
+        } catch (IOException e) {
+            LOGGER.error("Fail to create scan journal", e);
+            finishScan();
+            return;
+        }
+        final List<String> songPaths = songFiles.stream().map(SongFile::path).toList();
+        databaseService.beginRebuild()
+                       .onSuccess(__ -> {
+                           LOGGER.info("Start parsing {} song files.", songPaths.size());
+                           parseSongData(songPaths, journal);
+                       })
+                       .onFailure(err -> {
+                           LOGGER.error(err);
+                           finishScan();
+                       });
+    }
+
+    /**
+     * Continue an interrupted Build. Songs in the journal are already committed and skipped,
+     * songs removed from the file system since the Build started are dropped from the shadow tables.
+     *
+     * @param root      music directory
+     * @param songFiles song files found in the file system
+     * @param journal   journal of the interrupted Build
+     */
+    private void resumeSongFiles(final String root, final List<SongFile> songFiles, final ScanJournal journal) {
+        final Set<String> committedPaths = journal.committedPaths();
+        final Set<String> fsPathSet = songFiles.stream()
+                                               .map(SongFile::path)
+                                               .collect(Collectors.toSet());
+        final List<String> songPaths = songFiles.stream()
+                                                .map(SongFile::path)
+                                                .filter(o -> !committedPaths.contains(o))
+                                                .toList();
+        final List<String> deletedSongPaths = committedPaths.stream()
+                                                            .filter(o -> !fsPathSet.contains(o))
+                                                            .toList();
+        databaseService.isRebuilding()
+                       .onSuccess(rebuilding -> {
+                           if (!rebuilding) {
+                               LOGGER.info("No unfinished Build in database, start a new one.");
+                               rebuildSongFiles(root, songFiles);
+                               return;
+                           }
+                           final Future<Void> cleanup = deletedSongPaths.isEmpty()
+                                                        ? Future.succeededFuture()
+                                                        : databaseService.removeRebuiltSongs(deletedSongPaths);
+                           cleanup.onSuccess(__ -> {
+                                      LOGGER.info("Resume Build with {} songs committed, {} songs left.",
+                                                  committedPaths.size(),
+                                                  songPaths.size());
+                                      parseSongData(songPaths, journal);
+                                  })
+                                  .onFailure(err -> {
+                                      LOGGER.error(err);
+                                      finishScan();
+                                  });
+                       })
+                       .onFailure(err -> {
+                           LOGGER.error(err);
+                           finishScan();
+                       });
+    }
+
+    private void syncSongPaths(final List<String> paths) {
+        if (!running.compareAndSet(false, true)) {
+            pendingSyncPaths.addAll(paths);
+            return;
+        }
+        try {
+            startProgress();
+            final List<SongFile> songFiles = new ArrayList<>();
+            for (final String path : paths) {
+                if (Files.exists(Path.of(path))) {
+                    songFiles.addAll(retrieveSongFiles(path));
+                }
+            }
+            scanProgress.discovered(songFiles.size());
+            // only songs under the changed paths are compared, a single saved tag never loads the whole library
+            updateSongFiles(songFiles, databaseService.songFileStats(paths));
+        } catch (IOException e) {
+            LOGGER.error("Failed to retrieve changed song files: {}", paths, e);
+            finishScan();
+        }
+    }
+
+    /**
+     * Parse new or modified songs and remove songs no longer exist in the file system.
+     *
+     * @param songFiles     song files found in the file system
+     * @param songFileStats database records of songs in the scanned part of the file system
+     */
+    private void updateSongFiles(final List<SongFile> songFiles, final Future<List<JsonObject>> songFileStats) {
+        songFileStats.flatMap(stats -> {
+                         final Map<String, JsonObject> dbFileMap = new HashMap<>(stats.size());
+                         stats.forEach(o -> dbFileMap.put(o.getString("path"), o));
+                         final Set<String> fsPathSet = songFiles.stream()
+                                                                .map(SongFile::path)
+                                                                .collect(Collectors.toSet());
+
+                         final List<String> changedSongPaths = changedSongPaths(songFiles, dbFileMap);
+
+                         final List<String> deletedSongPaths = dbFileMap.keySet()
+                                                                        .stream()
+                                                                        .filter(o -> !fsPathSet.contains(o))
+                                                                        .toList();
+                         if (!deletedSongPaths.isEmpty()) {
+                             LOGGER.info("{} song need to delete.", deletedSongPaths.size());
+                             return databaseService.removeSongs(deletedSongPaths)
+                                                   .map(__ -> changedSongPaths);
+                         }
+                         return Future.succeededFuture(changedSongPaths);
+                     })
+                     .onSuccess(changedSongPaths -> {
+                         if (!changedSongPaths.isEmpty()) {
+                             LOGGER.info("{} songs to add or update.", changedSongPaths.size());
+                             parseSongData(changedSongPaths, null);
+                         } else {
+                             LOGGER.info("Nothing to update.");
+                             // removed songs may have taken their albums along, waits for the database off the context
+                             CompletableFuture.runAsync(this::removeUnusedCovers, SCAN_EXECUTOR)
+                                              .whenComplete((ignored, throwable) -> {
+                                                  eventBus.publish(DATABASE_UPDATE.name(), true);
+                                                  finishScan();
+                                              });
+                         }
+                     })
+                     .onFailure(err -> {
+                         LOGGER.error(err);
+                         finishScan();
+                     });
+    }
+
+    private void startProgress() {
+        scanProgress.start();
+        progressTimer = vertx.setPeriodic(PROGRESS_INTERVAL_MILLIS,
+                                          __ -> eventBus.publish(SCAN_PROGRESS.name(), scanProgress.snapshot(false)));
+    }
+
+    private void finishScan() {
+        vertx.cancelTimer(progressTimer);
+        eventBus.publish(SCAN_PROGRESS.name(), scanProgress.snapshot(true));
+        running.set(false);
+        if (!pendingSyncPaths.isEmpty()) {
+            final Set<String> paths = new HashSet<>(pendingSyncPaths);
+            pendingSyncPaths.removeAll(paths);
+            context.runOnContext(__ -> syncSongPaths(LibraryWatcher.coalesce(paths)));
         }
     }
 
-    static Map<Integer, AlbumData> aggregateSongData(final List<SongData> songs) {
-        final Map<Integer, AlbumData> sourceMap = new HashMap<>();
+    /**
+     * Find files that are new or whose modified time or size differ from the database record.
+     * Size recorded as 0 comes from databases created before size was tracked and is not compared.
+     *
+     * @param songFiles songs found in the music directory
+     * @param dbFileMap song file stats stored in database, keyed by path
+     * @return paths of songs need to be parsed
+     */
+    static List<String> changedSongPaths(final List<SongFile> songFiles, final Map<String, JsonObject> dbFileMap) {
+        final List<String> changedSongPaths = new ArrayList<>();
+        for (final SongFile songFile : songFiles) {
+            final JsonObject stat = dbFileMap.get(songFile.path());
+            if (stat == null
+                || stat.getLong("modifiedTime") != songFile.modifiedTime()
+                || (stat.getLong("size") != 0 && stat.getLong("size") != songFile.size())) {
+                changedSongPaths.add(songFile.path());
+            }
+        }
+        return changedSongPaths;
+    }
+
+    static Map<AlbumKey, AlbumData> aggregateSongData(final List<SongData> songs) {
+        final Map<AlbumKey, AlbumData> sourceMap = new HashMap<>();
         for (final SongData song : songs) {
             final String albumArtist = song.albumArtist();
-            final int key = Objects.hash(song.album(), song.albumArtist());
-
-            sourceMap.compute(key, (k, albumData) -> {
+            sourceMap.compute(AlbumKey.of(song), (k, albumData) -> {
                 if (albumData == null) {
                     albumData = AlbumData.builder()
                                          .name(song.album())
@@ -172,48 +411,159 @@ public final class AudioDataCollectorVerticle extends VerticleBase {
         return sourceMap;
     }
 
-    private void parseSongData(final List<String> songPaths) {
-        final List<SongData> songs = new ArrayList<>();
-        final Map<Integer, Artwork> visitedAlbum = new HashMap<>();
-
-        for (final String path : songPaths) {
-            try {
-                LOGGER.info("Parsing song: {}", path);
-                final SongPayload songPayload = parseTag(path);
+    /**
+     * Parse songs and write them to database.
+     *
+     * @param songPaths song paths to parse
+     * @param journal   journal to record committed songs in, {@code null} if the scan is not a Build.
+     *                  A Build writes into the shadow tables and replaces the library at the end.
+     */
+    private void parseSongData(final List<String> songPaths, final ScanJournal journal) {
+        scanProgress.scheduled(songPaths.size());
+        // runs outside the collector context, so database callbacks are not blocked by the waiting pipeline
+        CompletableFuture.supplyAsync(() -> writeSongData(songPaths, journal), SCAN_EXECUTOR)
+                         .whenComplete((success, throwable) -> {
+                             if (throwable != null) {
+                                 LOGGER.error("Fail to build directory", throwable);
+                             } else {
+                                 LOGGER.info("Finish scanning the directory.");
+                             }
+                             final boolean completed = throwable == null && success;
+                             if (completed) {
+                                 removeUnusedCovers();
+                             }
+                             // a resumed Build that fails again is not resumed forever, the next one starts over
+                             if (journal != null && (completed || journal.resumed())) {
+                                 journal.complete();
+                             }
+                             eventBus.publish(DATABASE_UPDATE.name(), completed);
+                             finishScan();
+                         });
+    }
 
-                final SongData song = songPayload.song();
-                songs.add(song);
+    /**
+     * Parse songs and write them to database in chunks of at most {@code scan.batch.size} albums,
+     * covers of each chunk are optimized right after it is committed. Songs of one album are usually
+     * next to each other, a chunk is only closed before a song of a new album to keep albums whole.
+     * Identical covers are optimized once and shared through the {@link CoverStore}.
+     *
+     * @param songPaths song paths to parse
+     * @param journal   journal to record committed songs in, nullable
+     * @return whether all chunks are written successfully
+     */
+    private boolean writeSongData(final List<String> songPaths, final ScanJournal journal) {
+        final int batchSize = scanBatchSize(config());
+        final List<SongData> pendingSongs = new ArrayList<>();
+        final Set<AlbumKey> pendingAlbums = new HashSet<>();
+        // album key -> path of the song to extract cover from
+        final Map<AlbumKey, String> pendingCovers = new HashMap<>();
+        final Set<AlbumKey> visitedCovers = new HashSet<>();
+        final AtomicBoolean success = new AtomicBoolean(true);
+        final CoverStore coverStore = new CoverStore(imageOptimizer,
+                                                     Path.of(ServerConfig.COVER_PATH),
+                                                     coverSourceDimension(config()),
+                                                     coverVariants(config()));
+
+        parseTags(songPaths, scanParallelism(config()), songPayload -> {
+            scanProgress.parsed();
+            final SongData song = songPayload.song();
+            final AlbumKey key = AlbumKey.of(song);
+            if (pendingAlbums.size() >= batchSize && !pendingAlbums.contains(key)) {
+                if (!flushSongData(pendingSongs, pendingCovers, coverStore, journal)) {
+                    success.set(false);
+                }
+                pendingSongs.clear();
+                pendingAlbums.clear();
+                pendingCovers.clear();
+            }
 
-                final int key = Objects.hash(song.album(), song.albumArtist());
-                visitedAlbum.computeIfAbsent(key, k -> songPayload.artwork());
-            } catch (Exception e) {
-                LOGGER.error("Fail to parse song data", e);
+            pendingSongs.add(song);
+            pendingAlbums.add(key);
+            if (songPayload.hasArtwork() && visitedCovers.add(key)) {
+                pendingCovers.put(key, song.path());
             }
+        });
+        if (!flushSongData(pendingSongs, pendingCovers, coverStore, journal) || !success.get()) {
+            return false;
         }
+        return journal == null || commitRebuild();
+    }
 
-        final Map<Integer, AlbumData> sourceMap = aggregateSongData(songs);
+    private boolean commitRebuild() {
+        try {
+            databaseService.commitRebuild()
+                           .toCompletionStage()
+                           .toCompletableFuture()
+                           .get();
+            LOGGER.info("Replace library with the new Build.");
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while replacing library", e);
+        } catch (ExecutionException e) {
+            LOGGER.error("Fail to replace library with the new Build", e.getCause());
+            return false;
+        }
+    }
 
-        databaseService.scan(List.copyOf(sourceMap.values()))
-                       .compose(__ -> {
-                           LOGGER.info("Successfully update the database");
-                           optimizeImages(visitedAlbum);
-                           return Future.succeededFuture();
-                       })
-                       .onSuccess(__ -> {
-                           LOGGER.info("Finish scanning the directory.");
-                           eventBus.publish(DATABASE_UPDATE.name(), true);
-                       })
-                       .onFailure(throwable -> {
-                           LOGGER.error("Fail to build directory", throwable);
-                           eventBus.publish(DATABASE_UPDATE.name(), false);
-                       })
-                       .eventually(() -> {
-                           running.set(false);
-                           return Future.succeededFuture();
-                       });
+    private boolean flushSongData(final List<SongData> songs,
+                                  final Map<AlbumKey, String> covers,
+                                  final CoverStore coverStore,
+                                  final ScanJournal journal) {
+        if (songs.isEmpty()) {
+            return true;
+        }
+        final Map<AlbumKey, AlbumData> sourceMap = aggregateSongData(songs);
+        final List<AlbumKey> albumKeys = List.copyOf(sourceMap.keySet());
+        // album id -> path of the song to extract cover from
+        final Map<Integer, String> albumCovers = new HashMap<>();
+        try {
+            final List<AlbumData> albums = albumKeys.stream().map(sourceMap::get).toList();
+            final Future<List<Integer>> write = journal != null ? databaseService.rebuild(albums) : databaseService.scan(albums);
+            final List<Integer> albumIds = write.toCompletionStage()
+                                                .toCompletableFuture()
+                                                .get();
+            for (int i = 0; i < albumKeys.size(); i++) {
+                final String songPath = covers.get(albumKeys.get(i));
+                if (songPath != null) {
+                    albumCovers.put(albumIds.get(i), songPath);
+                }
+            }
+            LOGGER.info("Successfully write {} albums to the database", sourceMap.size());
+            scanProgress.albumsCommitted(sourceMap.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing songs to database", e);
+        } catch (ExecutionException e) {
+            LOGGER.error("Fail to write {} albums to the database", sourceMap.size(), e.getCause());
+            return false;
+        }
+        optimizeImages(albumCovers, coverStore);
+        if (journal != null) {
+            journal.commit(songs.stream().map(SongData::path).toList());
+        }
+        return true;
     }
 
-    private void optimizeImages(final Map<Integer, Artwork> coverMap) {
+    /**
+     * Remove covers of albums dropped by the scan and stored images no cover uses anymore.
+     * Blocks on the database, must run outside the collector context.
+     */
+    private void removeUnusedCovers() {
+        try {
+            final List<Integer> albumIds = databaseService.albumIds()
+                                                          .toCompletionStage()
+                                                          .toCompletableFuture()
+                                                          .get();
+            CoverStore.removeUnused(Path.of(ServerConfig.COVER_PATH), Set.copyOf(albumIds));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error("Fail to read albums, keep covers.", e.getCause());
+        }
+    }
+
+    private void optimizeImages(final Map<Integer, String> coverMap, final CoverStore coverStore) {
         if (coverMap.isEmpty()) {
             LOGGER.info("All images have been optimized.");
             return;
@@ -222,7 +572,7 @@ public final class AudioDataCollectorVerticle extends VerticleBase {
         final var futures = coverMap.entrySet()
                                     .stream()
                                     .map(entry -> CompletableFuture.runAsync(
-                                            () -> optimizeImage(entry.getKey(), entry.getValue()),
+                                            () -> optimizeImage(entry.getKey(), entry.getValue(), coverStore),
                                             IMAGE_OPTIMIZATION_EXECUTOR))
                                     .toList();
         try {
@@ -236,22 +586,29 @@ public final class AudioDataCollectorVerticle extends VerticleBase {
         }
     }
 
-    private void optimizeImage(final int albumId, final Artwork artwork) {
+    private void optimizeImage(final int albumId, final String songPath, final CoverStore coverStore) {
         try {
-            final int sourceDimension = coverSourceDimension(config());
-            final List<Integer> variantDimensions = coverVariants(config());
-
-            final String filePath = Path.of(ServerConfig.COVER_PATH)
-                                        .resolve(albumId + ".png")
-                                        .toString();
+            final Optional<byte[]> artwork = readArtwork(songPath);
+            if (artwork.isEmpty()) {
+                LOGGER.warn("Artwork no longer exists in {}", songPath);
+                return;
+            }
 
-            fileSystem.writeFileBlocking(filePath, Buffer.buffer(artwork.getBinaryData()));
-            if (optimize(filePath, sourceDimension, variantDimensions)) {
-                fileSystem.deleteBlocking(filePath);
-                LOGGER.info("Successfully optimized image {}", filePath);
+            if (coverStore.save(albumId, artwork.get())) {
+                LOGGER.info("Successfully optimized image {}", albumId);
+                scanProgress.imageOptimized();
             }
         } catch (Exception e) {
             LOGGER.error("Fail to optimize image", e);
         }
     }
+
+    /**
+     * Songs of the same album, compared by value so different albums never share a key.
+     */
+    record AlbumKey(String album, String albumArtist) {
+        static AlbumKey of(final SongData song) {
+            return new AlbumKey(song.album(), song.albumArtist());
+        }
+    }
 }
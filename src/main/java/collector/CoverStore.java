@@ -0,0 +1,260 @@
+package collector;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content addressed cover store. Covers are optimized once per distinct image into {@code store/<sha256>.webp}
+ * (plus variants), album covers {@code <albumId>.webp} are hard links to the shared files, so the image handler
+ * keeps serving covers by album id while identical covers share the same file on disk and in page cache.
+ * Filesystems without hard link support get a copy instead. Images already in the store, from a previous scan,
+ * are linked without optimizing them again.
+ */
+final class CoverStore {
+    private static final Logger LOGGER = LogManager.getLogger(CoverStore.class);
+
+    private static final String STORE_DIRECTORY = "store";
+
+    // album cover or one of its variants, group 1 is the album id
+    private static final Pattern ALBUM_COVER_PATTERN = Pattern.compile("^(-?\\d{1,10})(_\\d+x\\d+)?\\.webp$");
+
+    // suffix of covers moved aside for a new album id
+    private static final String MOVED_SUFFIX = ".moved";
+
+    private final ImageOptimizer imageOptimizer;
+    private final Path coverDirectory;
+    private final Path storeDirectory;
+    private final int sourceDimension;
+    private final List<Integer> variantDimensions;
+
+    // images optimized by this store, keyed by content hash
+    private final Map<String, CompletableFuture<Boolean>> optimizedImages = new ConcurrentHashMap<>();
+
+    CoverStore(final ImageOptimizer imageOptimizer,
+               final Path coverDirectory,
+               final int sourceDimension,
+               final List<Integer> variantDimensions) {
+        this.imageOptimizer = imageOptimizer;
+        this.coverDirectory = coverDirectory;
+        this.storeDirectory = coverDirectory.resolve(STORE_DIRECTORY);
+        this.sourceDimension = sourceDimension;
+        this.variantDimensions = variantDimensions;
+    }
+
+    /**
+     * Save cover for album, the image is only optimized if the same content is not saved before.
+     * Safe to call concurrently, callers with the same image wait for the first one to optimize it.
+     *
+     * @param albumId album id
+     * @param image   raw image bytes extracted from song
+     * @return whether album cover is saved
+     */
+    boolean save(final int albumId, final byte[] image) {
+        final String hash = hash(image);
+
+        final CompletableFuture<Boolean> optimization = new CompletableFuture<>();
+        final CompletableFuture<Boolean> existing = optimizedImages.putIfAbsent(hash, optimization);
+        if (existing == null) {
+            try {
+                Files.createDirectories(storeDirectory);
+                optimization.complete(isStored(hash)
+                                      || imageOptimizer.optimize(image, storeDirectory, hash, sourceDimension, variantDimensions));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Fail to optimize image {}", hash, e);
+                optimization.complete(false);
+            }
+        }
+
+        if (!(existing == null ? optimization : existing).join()) {
+            return false;
+        }
+
+        try {
+            for (String suffix : suffixes()) {
+                link(coverDirectory.resolve(albumId + suffix), storeDirectory.resolve(hash + suffix));
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Fail to link cover of album {} to image {}", albumId, hash, e);
+            return false;
+        }
+    }
+
+    private boolean isStored(final String hash) {
+        return suffixes().stream().allMatch(suffix -> Files.exists(storeDirectory.resolve(hash + suffix)));
+    }
+
+    private List<String> suffixes() {
+        final List<String> suffixes = new ArrayList<>(variantDimensions.size() + 1);
+        suffixes.add(".webp");
+        for (int dimension : variantDimensions) {
+            suffixes.add(String.format("_%1$dx%1$d.webp", dimension));
+        }
+        return suffixes;
+    }
+
+    /**
+     * Point album cover to the stored image. The link is created under a temporary name and moved over
+     * the old cover, so the image handler never sees a missing file while a cover is replaced.
+     */
+    private static void link(final Path cover, final Path image) throws IOException {
+        final Path temporary = cover.resolveSibling(cover.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        try {
+            Files.createLink(temporary, image);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(image, temporary);
+        }
+        try {
+            Files.move(temporary, cover, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, cover, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Remove covers of albums no longer in the library, then stored images no album cover points to.
+     * A stored image is in use if an album cover is a hard link to it, or a copy of it on filesystems without links.
+     * Must not run while covers are being saved.
+     *
+     * @param coverDirectory cover directory
+     * @param albumIds       ids of albums in the library
+     */
+    static void removeUnused(final Path coverDirectory, final Set<Integer> albumIds) {
+        final Set<Object> linkedImages = new HashSet<>();
+        // album covers by file size, stored images are only compared byte by byte against covers of the same size
+        final Map<Long, List<Path>> copiedImages = new HashMap<>();
+        int removed = 0;
+        try (Stream<Path> covers = Files.list(coverDirectory)) {
+            for (Path cover : covers.filter(Files::isRegularFile).toList()) {
+                final Matcher matcher = ALBUM_COVER_PATTERN.matcher(cover.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                final long albumId = Long.parseLong(matcher.group(1));
+                // ids beyond int range are not album covers, leave those files alone
+                if (albumId > Integer.MAX_VALUE || albumId < Integer.MIN_VALUE) {
+                    continue;
+                }
+                if (!albumIds.contains((int) albumId)) {
+                    Files.deleteIfExists(cover);
+                    removed++;
+                    continue;
+                }
+                final BasicFileAttributes attributes = Files.readAttributes(cover, BasicFileAttributes.class);
+                if (attributes.fileKey() != null) {
+                    linkedImages.add(attributes.fileKey());
+                }
+                copiedImages.computeIfAbsent(attributes.size(), __ -> new ArrayList<>()).add(cover);
+            }
+
+            final Path storeDirectory = coverDirectory.resolve(STORE_DIRECTORY);
+            if (Files.isDirectory(storeDirectory)) {
+                try (Stream<Path> images = Files.list(storeDirectory)) {
+                    for (Path image : images.filter(Files::isRegularFile).toList()) {
+                        if (!isInUse(image, linkedImages, copiedImages)) {
+                            Files.deleteIfExists(image);
+                            removed++;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Fail to remove unused covers", e);
+        }
+        LOGGER.info("Removed {} unused cover files.", removed);
+    }
+
+    /**
+     * Move covers of renumbered albums aside under their new album id. Covers are only put in place by
+     * {@link #finishMovedCovers(Path)}, so a cover taking over the id of another renumbered album never replaces it.
+     * Covers already moved aside are not touched when called again after an interruption.
+     *
+     * @param coverDirectory cover directory
+     * @param albumIds       new album id by old album id
+     */
+    static void moveCovers(final Path coverDirectory, final Map<Integer, Integer> albumIds) throws IOException {
+        if (!Files.isDirectory(coverDirectory)) {
+            return;
+        }
+        try (Stream<Path> covers = Files.list(coverDirectory)) {
+            for (Path cover : covers.filter(Files::isRegularFile).toList()) {
+                final Matcher matcher = ALBUM_COVER_PATTERN.matcher(cover.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                final long albumId = Long.parseLong(matcher.group(1));
+                final Integer newId = albumId > Integer.MAX_VALUE || albumId < Integer.MIN_VALUE ? null : albumIds.get((int) albumId);
+                if (newId == null) {
+                    continue;
+                }
+                final String variant = matcher.group(2) == null ? "" : matcher.group(2);
+                Files.move(cover, cover.resolveSibling(newId + variant + ".webp" + MOVED_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Put covers moved aside by {@link #moveCovers(Path, Map)} in place.
+     *
+     * @param coverDirectory cover directory
+     */
+    static void finishMovedCovers(final Path coverDirectory) throws IOException {
+        if (!Files.isDirectory(coverDirectory)) {
+            return;
+        }
+        try (Stream<Path> covers = Files.list(coverDirectory)) {
+            for (Path cover : covers.filter(path -> path.getFileName().toString().endsWith(MOVED_SUFFIX)).toList()) {
+                final String name = cover.getFileName().toString();
+                Files.move(cover,
+                           cover.resolveSibling(name.substring(0, name.length() - MOVED_SUFFIX.length())),
+                           StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static boolean isInUse(final Path image,
+                                   final Set<Object> linkedImages,
+                                   final Map<Long, List<Path>> copiedImages) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(image, BasicFileAttributes.class);
+        if (attributes.fileKey() != null && linkedImages.contains(attributes.fileKey())) {
+            return true;
+        }
+        for (Path cover : copiedImages.getOrDefault(attributes.size(), List.of())) {
+            if (Files.mismatch(image, cover) == -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String hash(final byte[] image) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(image));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,82 +1,43 @@
 package collector;
 
+import enums.ImageOptimizerType;
+import io.vertx.core.json.JsonObject;
 import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
-
-public final class ImageOptimizer {
-    private static final Logger LOGGER = LogManager.getLogger(ImageOptimizer.class);
-
-    private ImageOptimizer() {
-    }
-
-    public static boolean optimize(final String filePath, final int sourceDimension, final List<Integer> variantDimensions) {
-        final String[] sourceCommand = sourceCommands(filePath, sourceDimension);
-        try {
-            // normalize source image
-            if (0 != runCommand(sourceCommand)) {
-                return false;
-            }
-
-            // create sub variant
-            for (int dimension : variantDimensions) {
-                final String[] variantCommends = commands(filePath, dimension);
-                if (0 != runCommand(variantCommends)) {
-                    return false;
+import java.util.Locale;
+
+import static config.ServerConfig.coverOptimizer;
+
+/**
+ * Normalize album covers into {@code <name>.webp} and {@code <name>_<size>x<size>.webp} variants.
+ */
+public interface ImageOptimizer {
+    static ImageOptimizer create(final JsonObject config) {
+        final ImageOptimizer ffmpeg = new FFmpegImageOptimizer();
+        return switch (ImageOptimizerType.valueOf(coverOptimizer(config).toUpperCase(Locale.ROOT))) {
+            case JAVA -> {
+                if (JavaImageOptimizer.isSupported()) {
+                    yield new JavaImageOptimizer(ffmpeg);
                 }
+                LogManager.getLogger(ImageOptimizer.class)
+                          .warn("No working WebP image writer available, use ffmpeg for image optimization.");
+                yield ffmpeg;
             }
-            return true;
-        } catch (IOException | InterruptedException e) {
-            LOGGER.error(e);
-        }
-        return false;
-    }
-
-    private static String[] sourceCommands(final String filePath, final int size) {
-        final String format = String.format("scale='if(gt(a,1),%1$d,-1)':'if(gt(a,1),-1,%1$d)',pad=%1$d:%1$d:(%1$d-iw)/2:(%1$d-ih)/2:color=0x00000000", size);
-        return new String[]{
-                "ffmpeg",
-                "-y",
-                "-i", filePath,
-                "-vf", format,
-                "-compression_level", "6",
-                "-loglevel", "fatal",
-                filePath.replace(".png", ".webp")
+            case FFMPEG -> ffmpeg;
         };
     }
 
-    private static String[] commands(final String filePath, final int size) {
-        final String format = String.format("scale='if(gt(a,1),%1$d,-1)':'if(gt(a,1),-1,%1$d)',pad=%1$d:%1$d:(%1$d-iw)/2:(%1$d-ih)/2:color=0x00000000", size);
-        return new String[]{
-                "ffmpeg",
-                "-y",
-                "-i", filePath,
-                "-vf", format,
-                "-q:v", "75",
-                "-compression_level", "6",
-                "-loglevel", "fatal",
-                filePath.replace(".png", String.format("_%1$dx%1$d.webp", size))
-        };
-    }
-
-    private static int runCommand(final String[] command) throws InterruptedException, IOException {
-        final ProcessBuilder processBuilder = new ProcessBuilder(command);
-        processBuilder.redirectErrorStream(true);
-
-        final Process process = processBuilder.start();
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                LOGGER.error(line);
-            }
-        }
-
-        return process.waitFor();
-    }
+    /**
+     * Optimize cover image.
+     *
+     * @param image             raw image bytes extracted from song
+     * @param directory         directory to write optimized images to
+     * @param name              base file name of the optimized images
+     * @param sourceDimension   dimension of the normalized cover
+     * @param variantDimensions dimensions of additional variants
+     * @return whether all images are created
+     */
+    boolean optimize(byte[] image, Path directory, String name, int sourceDimension, List<Integer> variantDimensions);
 }
@@ -0,0 +1,165 @@
+package collector;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Optimize covers in process: the image is decoded once and every size is scaled from the same raster,
+ * then encoded with the WebP {@link ImageWriter} registered in ImageIO.
+ * Images ImageIO cannot decode or encode (i.e. CMYK jpeg, missing native encoder) are passed to the fallback optimizer.
+ */
+final class JavaImageOptimizer implements ImageOptimizer {
+    private static final Logger LOGGER = LogManager.getLogger(JavaImageOptimizer.class);
+
+    private static final String FORMAT = "webp";
+
+    private static final float QUALITY = 0.75f;
+
+    static {
+        // decode from memory instead of spilling every cover into a temporary cache file
+        ImageIO.setUseCache(false);
+    }
+
+    private final ImageOptimizer fallback;
+
+    JavaImageOptimizer(final ImageOptimizer fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * Encode a single pixel, a writer registered without its native library only fails once it encodes,
+     * which would otherwise send every cover through the fallback.
+     *
+     * @return whether WebP images can be written in process
+     */
+    static boolean isSupported() {
+        final Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(FORMAT);
+        if (!writers.hasNext()) {
+            return false;
+        }
+        final ImageWriter writer = writers.next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(new ByteArrayOutputStream())) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB), null, null), writeParam(writer));
+            return true;
+        } catch (IOException | RuntimeException | LinkageError e) {
+            LOGGER.debug("WebP image writer fails to encode.", e);
+            return false;
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    @Override
+    public boolean optimize(final byte[] image,
+                            final Path directory,
+                            final String name,
+                            final int sourceDimension,
+                            final List<Integer> variantDimensions) {
+        try {
+            final BufferedImage source = ImageIO.read(new ByteArrayInputStream(image));
+            if (source == null) {
+                LOGGER.debug("Unsupported image format for {}, use fallback optimizer.", name);
+                return fallback.optimize(image, directory, name, sourceDimension, variantDimensions);
+            }
+
+            write(resize(source, sourceDimension), directory.resolve(name + "." + FORMAT));
+            for (int dimension : variantDimensions) {
+                write(resize(source, dimension), directory.resolve(String.format("%1$s_%2$dx%2$d.%3$s", name, dimension, FORMAT)));
+            }
+            return true;
+        } catch (IOException | RuntimeException | LinkageError e) {
+            LOGGER.warn("Fail to optimize image {} in process, use fallback optimizer.", name, e);
+            return fallback.optimize(image, directory, name, sourceDimension, variantDimensions);
+        }
+    }
+
+    /**
+     * Scale the longer side to the given size and pad the shorter side with transparent pixels to a square,
+     * same as the ffmpeg {@code scale,pad} filter used by {@link FFmpegImageOptimizer}.
+     *
+     * @param source decoded image
+     * @param size   target width and height
+     * @return square image
+     */
+    static BufferedImage resize(final BufferedImage source, final int size) {
+        final double scale = (double) size / Math.max(source.getWidth(), source.getHeight());
+        final int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        final int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // halve step by step on large reductions, a single bilinear pass skips pixels and aliases
+        BufferedImage scaled = source;
+        while (scaled.getWidth() / 2 >= width && scaled.getHeight() / 2 >= height) {
+            scaled = draw(scaled, scaled.getWidth() / 2, scaled.getHeight() / 2, scaled.getWidth() / 2, scaled.getHeight() / 2, 0, 0);
+        }
+        return draw(scaled, size, size, width, height, (size - width) / 2, (size - height) / 2);
+    }
+
+    private static BufferedImage draw(final BufferedImage source,
+                                      final int canvasWidth,
+                                      final int canvasHeight,
+                                      final int width,
+                                      final int height,
+                                      final int x,
+                                      final int y) {
+        final BufferedImage target = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, x, y, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static void write(final BufferedImage image, final Path path) throws IOException {
+        final Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(FORMAT);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for " + FORMAT);
+        }
+        final ImageWriter writer = writers.next();
+        Files.deleteIfExists(path);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(path.toFile())) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), writeParam(writer));
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static ImageWriteParam writeParam(final ImageWriter writer) {
+        final ImageWriteParam param = writer.getDefaultWriteParam();
+        if (param.canWriteCompressed()) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            final String[] types = param.getCompressionTypes();
+            if (types != null && types.length > 0) {
+                param.setCompressionType(Arrays.stream(types)
+                                               .filter(type -> type.toLowerCase(Locale.ROOT).contains("lossy"))
+                                               .findFirst()
+                                               .orElse(types[0]));
+            }
+            param.setCompressionQuality(QUALITY);
+        }
+        return param;
+    }
+}
@@ -0,0 +1,159 @@
+package collector;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Recursively watch the music directory and report changed paths in batches.
+ * Events are collected until the directory has been quiet for the debounce interval,
+ * a continuous event storm is flushed at the latest after {@link #MAX_DELAY_FACTOR} intervals.
+ */
+final class LibraryWatcher implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(LibraryWatcher.class);
+
+    private static final int MAX_DELAY_FACTOR = 10;
+
+    private final Path root;
+    private final long debounceMillis;
+    private final Consumer<List<String>> batchHandler;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
+    private final Thread thread;
+
+    LibraryWatcher(final Path root,
+                   final long debounceMillis,
+                   final Consumer<List<String>> batchHandler) throws IOException {
+        this.root = root.toAbsolutePath();
+        this.debounceMillis = debounceMillis;
+        this.batchHandler = batchHandler;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.thread = Thread.ofPlatform()
+                            .name("library-watcher")
+                            .daemon(true)
+                            .unstarted(this::run);
+    }
+
+    void start() throws IOException {
+        registerAll(root);
+        LOGGER.info("Watching {} directories under {}", watchKeys.size(), root);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        final Set<String> batch = new HashSet<>();
+        long batchStartTime = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final WatchKey key = batch.isEmpty()
+                                     ? watchService.take()
+                                     : watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    if (batch.isEmpty()) {
+                        batchStartTime = System.currentTimeMillis();
+                    }
+                    collectEvents(key, batch);
+                }
+
+                final boolean quiet = key == null;
+                final boolean overdue = System.currentTimeMillis() - batchStartTime >= debounceMillis * MAX_DELAY_FACTOR;
+                if (!batch.isEmpty() && (quiet || overdue)) {
+                    final List<String> paths = coalesce(batch);
+                    batch.clear();
+                    LOGGER.info("Detected changes in {} paths.", paths.size());
+                    batchHandler.accept(paths);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.info("Stop watching {}", root);
+        }
+    }
+
+    private void collectEvents(final WatchKey key, final Set<String> batch) {
+        final Path directory = watchKeys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || directory == null) {
+                // events are lost, fall back to sync the whole library
+                batch.add(root.toString());
+                continue;
+            }
+
+            final Path path = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    registerAll(path);
+                } catch (IOException e) {
+                    LOGGER.error("Fail to watch directory {}", path, e);
+                }
+            }
+            batch.add(path.toString());
+        }
+
+        if (!key.reset()) {
+            watchKeys.remove(key);
+        }
+    }
+
+    private void registerAll(final Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                final WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                watchKeys.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Drop paths already covered by a changed ancestor directory.
+     *
+     * @param paths changed paths
+     * @return sorted paths without nested entries
+     */
+    static List<String> coalesce(final Set<String> paths) {
+        final List<String> result = new ArrayList<>();
+        for (String path : paths) {
+            boolean covered = false;
+            for (Path parent = Path.of(path).getParent(); parent != null && !covered; parent = parent.getParent()) {
+                covered = paths.contains(parent.toString());
+            }
+            if (!covered) {
+                result.add(path);
+            }
+        }
+        result.sort(null);
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+package collector;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Journal of a running Build. The first line is the scanned music directory, followed by paths of songs
+ * committed to the database with their covers optimized. The journal is removed once the Build completes,
+ * a journal left behind means the Build was interrupted and can continue from the committed songs.
+ */
+final class ScanJournal {
+    private static final Logger LOGGER = LogManager.getLogger(ScanJournal.class);
+
+    private final Path file;
+    private final Set<String> committedPaths;
+    private final boolean resumed;
+
+    private ScanJournal(final Path file, final Set<String> committedPaths, final boolean resumed) {
+        this.file = file;
+        this.committedPaths = committedPaths;
+        this.resumed = resumed;
+    }
+
+    /**
+     * Check whether a Build of the music directory was interrupted.
+     *
+     * @param file journal file
+     * @param root music directory
+     * @return whether journal of the music directory exists
+     */
+    static boolean isInterrupted(final Path file, final String root) {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return root.equals(reader.readLine());
+        } catch (IOException e) {
+            LOGGER.error("Fail to read scan journal {}", file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Start journal for a new Build, replacing the journal of any previous Build.
+     *
+     * @param file journal file
+     * @param root music directory to build
+     * @return empty journal
+     * @throws IOException fail to create journal
+     */
+    static ScanJournal start(final Path file, final String root) throws IOException {
+        Files.writeString(file, root + System.lineSeparator(), StandardCharsets.UTF_8);
+        return new ScanJournal(file, new HashSet<>(), false);
+    }
+
+    /**
+     * Open journal of an interrupted Build.
+     *
+     * @param file journal file
+     * @param root music directory to build
+     * @return journal with committed songs, or empty if there is no journal for the same music directory
+     */
+    static Optional<ScanJournal> resume(final Path file, final String root) {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!root.equals(reader.readLine())) {
+                LOGGER.info("Discard journal of a Build for another directory.");
+                return Optional.empty();
+            }
+            final Set<String> committedPaths = new HashSet<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    committedPaths.add(line);
+                }
+            }
+            return Optional.of(new ScanJournal(file, committedPaths, true));
+        } catch (IOException e) {
+            LOGGER.error("Fail to read scan journal {}", file, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return songs committed before the Build was interrupted
+     */
+    Set<String> committedPaths() {
+        return committedPaths;
+    }
+
+    /**
+     * @return whether the journal continues an interrupted Build
+     */
+    boolean resumed() {
+        return resumed;
+    }
+
+    /**
+     * Record songs committed to the database. Failure only costs reparsing these songs on resume,
+     * so it is logged instead of failing the Build.
+     *
+     * @param paths song paths
+     */
+    void commit(final Collection<String> paths) {
+        final StringBuilder builder = new StringBuilder();
+        for (String path : paths) {
+            builder.append(path).append(System.lineSeparator());
+        }
+        try {
+            Files.writeString(file, builder, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOGGER.error("Fail to write scan journal {}", file, e);
+        }
+    }
+
+    void complete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.error("Fail to delete scan journal {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package collector;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a running scan. Counters are plain atomic increments updated by the scan, parser and image threads,
+ * the rate and ETA are only computed when a snapshot is taken, so reporting costs nothing per song.
+ */
+final class ScanProgress {
+    private final AtomicLong discovered = new AtomicLong();
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong parsed = new AtomicLong();
+    private final AtomicLong albumsCommitted = new AtomicLong();
+    private final AtomicLong imagesOptimized = new AtomicLong();
+
+    // state of the previous snapshot, rate is measured between two snapshots
+    private long lastSnapshotTime;
+    private long lastParsed;
+
+    synchronized void start() {
+        discovered.set(0);
+        scheduled.set(0);
+        parsed.set(0);
+        albumsCommitted.set(0);
+        imagesOptimized.set(0);
+        lastSnapshotTime = System.nanoTime();
+        lastParsed = 0;
+    }
+
+    void discovered(final long count) {
+        discovered.addAndGet(count);
+    }
+
+    void scheduled(final long count) {
+        scheduled.addAndGet(count);
+    }
+
+    void parsed() {
+        parsed.incrementAndGet();
+    }
+
+    void albumsCommitted(final long count) {
+        albumsCommitted.addAndGet(count);
+    }
+
+    void imageOptimized() {
+        imagesOptimized.incrementAndGet();
+    }
+
+    JsonObject snapshot(final boolean done) {
+        return snapshot(done, System.nanoTime());
+    }
+
+    /**
+     * @param done whether the scan is finished
+     * @param now  current {@link System#nanoTime()}
+     * @return progress with parse rate in files per second since the last snapshot and ETA in seconds
+     */
+    synchronized JsonObject snapshot(final boolean done, final long now) {
+        final long parsedCount = parsed.get();
+        final long elapsed = now - lastSnapshotTime;
+        final double rate = elapsed > 0
+                            ? (parsedCount - lastParsed) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed
+                            : 0;
+        lastSnapshotTime = now;
+        lastParsed = parsedCount;
+
+        final long remaining = Math.max(0, scheduled.get() - parsedCount);
+        final Long eta;
+        if (done) {
+            eta = 0L;
+        } else if (rate > 0) {
+            eta = (long) Math.ceil(remaining / rate);
+        } else {
+            eta = null;
+        }
+        return new JsonObject().put("discovered", discovered.get())
+                               .put("parsed", parsedCount)
+                               .put("rate", rate)
+                               .put("albumsCommitted", albumsCommitted.get())
+                               .put("imagesOptimized", imagesOptimized.get())
+                               .put("eta", eta)
+                               .put("done", done);
+    }
+}
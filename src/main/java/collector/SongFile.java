@@ -0,0 +1,4 @@
+package collector;
+
+public record SongFile(String path, long modifiedTime, long size) {
+}
@@ -1,7 +1,13 @@
 package collector;
 
 import models.SongData;
-import org.jaudiotagger.tag.images.Artwork;
 
-public record SongPayload(SongData song, Artwork artwork) {
+/**
+ * Parsed song tag. Only whether the song embeds a cover is kept, cover bytes are read again by
+ * {@link AlbumScannerHelper#readArtwork(String)} when the image is optimized.
+ *
+ * @param song       song data
+ * @param hasArtwork whether the song file embeds artwork
+ */
+public record SongPayload(SongData song, boolean hasArtwork) {
 }
@@ -1,5 +1,6 @@
 package config;
 
+import enums.ImageOptimizerType;
 import io.vertx.core.Future;
 import io.vertx.core.json.JsonObject;
 import org.apache.logging.log4j.Level;
@@ -11,8 +12,10 @@ import org.apache.logging.log4j.core.config.LoggerConfig;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -23,6 +26,16 @@ public final class ServerConfig {
 
     private static final List<Integer> DEFAULT_COVER_VARIANTS = List.of(50, 180);
 
+    private static final String DEFAULT_COVER_OPTIMIZER = "java";
+
+    private static final int DEFAULT_SCAN_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private static final int DEFAULT_SCAN_BATCH_SIZE = 200;
+
+    private static final long DEFAULT_WATCH_DEBOUNCE_MILLIS = 2000;
+
+    private static final int DEFAULT_DATABASE_READ_POOL_SIZE = 4;
+
 
     public static final String DATABASE_CONFIG = "DATABASE_CONFIG";
 
@@ -36,6 +49,8 @@ public final class ServerConfig {
 
     public static final String DATABASE_FILE_PATH = BASE_CONFIG_PATH.resolve("main.sqlite").toString();
 
+    public static final String SCAN_JOURNAL_PATH = BASE_CONFIG_PATH.resolve("scan.journal").toString();
+
     // configuration keys
     public static final String MUSIC_DIRECTORY_CONFIG = "directory.music";
 
@@ -49,6 +64,18 @@ public final class ServerConfig {
 
     public static final String COVER_VARIANT_DIMENSION = "cover.variant";
 
+    public static final String COVER_OPTIMIZER = "cover.optimizer";
+
+    public static final String SCAN_PARALLELISM = "scan.parallelism";
+
+    public static final String SCAN_BATCH_SIZE = "scan.batch.size";
+
+    public static final String WATCH_ENABLE = "watch.enable";
+
+    public static final String WATCH_DEBOUNCE = "watch.debounce";
+
+    public static final String DATABASE_READ_POOL_SIZE = "database.read.pool.size";
+
     public static final String LIB_MPV_SOURCE_OVERRIDE = "lib.mpv.source.override";
 
     public static final String AUDIO_HARDWARE = "audio.hardware";
@@ -72,6 +99,26 @@ public final class ServerConfig {
                                        + config.getString(COVER_VARIANT_DIMENSION));
         }
 
+        if (config.containsKey(COVER_OPTIMIZER) && !isValidOptimizer(config.getString(COVER_OPTIMIZER))) {
+            return Future.failedFuture("Cover optimizer should be one of " + Arrays.toString(ImageOptimizerType.values()) + ", but get "
+                                       + config.getString(COVER_OPTIMIZER));
+        }
+
+        if (config.containsKey(SCAN_PARALLELISM) && !isPositiveInteger(config.getValue(SCAN_PARALLELISM))) {
+            return Future.failedFuture("Scan parallelism should be a positive integer, but get "
+                                       + config.getValue(SCAN_PARALLELISM));
+        }
+
+        if (config.containsKey(SCAN_BATCH_SIZE) && !isPositiveInteger(config.getValue(SCAN_BATCH_SIZE))) {
+            return Future.failedFuture("Scan batch size should be a positive integer, but get "
+                                       + config.getValue(SCAN_BATCH_SIZE));
+        }
+
+        if (config.containsKey(DATABASE_READ_POOL_SIZE) && !isPositiveInteger(config.getValue(DATABASE_READ_POOL_SIZE))) {
+            return Future.failedFuture("Database read pool size should be a positive integer, but get "
+                                       + config.getValue(DATABASE_READ_POOL_SIZE));
+        }
+
         if (isWindows() && !config.containsKey(LIB_MPV_SOURCE_OVERRIDE)) {
             return Future.failedFuture("Require libmpv source override to be set in Windows.");
         }
@@ -89,6 +136,19 @@ public final class ServerConfig {
         return matcher.matches();
     }
 
+    private static boolean isPositiveInteger(final Object value) {
+        return value instanceof Integer integer && integer > 0;
+    }
+
+    private static boolean isValidOptimizer(final String value) {
+        try {
+            ImageOptimizerType.valueOf(value.toUpperCase(Locale.ROOT));
+            return true;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return false;
+        }
+    }
+
     public static String musicDirectory(final JsonObject config) {
         final String directory = config.getString(MUSIC_DIRECTORY_CONFIG);
         if (directory.contains("~")) {
@@ -105,6 +165,30 @@ public final class ServerConfig {
         return config.getInteger(COVER_SOURCE_DIMENSION, DEFAULT_COVER_SOURCE_DIMENSION);
     }
 
+    public static String coverOptimizer(final JsonObject config) {
+        return config.getString(COVER_OPTIMIZER, DEFAULT_COVER_OPTIMIZER);
+    }
+
+    public static int scanParallelism(final JsonObject config) {
+        return config.getInteger(SCAN_PARALLELISM, DEFAULT_SCAN_PARALLELISM);
+    }
+
+    public static int scanBatchSize(final JsonObject config) {
+        return config.getInteger(SCAN_BATCH_SIZE, DEFAULT_SCAN_BATCH_SIZE);
+    }
+
+    public static boolean isLibraryWatchEnabled(final JsonObject config) {
+        return config.getBoolean(WATCH_ENABLE, false);
+    }
+
+    public static long libraryWatchDebounce(final JsonObject config) {
+        return config.getLong(WATCH_DEBOUNCE, DEFAULT_WATCH_DEBOUNCE_MILLIS);
+    }
+
+    public static int databaseReadPoolSize(final JsonObject config) {
+        return config.getInteger(DATABASE_READ_POOL_SIZE, DEFAULT_DATABASE_READ_POOL_SIZE);
+    }
+
     public static boolean enableGraphQLDebug(final JsonObject config) {
         return config.getBoolean(DEBUG_SWITCH_CONFIG, false);
     }
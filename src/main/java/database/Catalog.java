@@ -0,0 +1,58 @@
+package database;
+
+import io.vertx.core.json.JsonObject;
+import models.Album;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the library, built after each scan so catalog queries are answered from memory.
+ * Json entries are shared between requests and must not be modified.
+ */
+record Catalog(List<Album> albums,
+               List<JsonObject> albumSummaries,
+               Map<Integer, Album> albumsById,
+               List<JsonObject> genres,
+               List<JsonObject> albumArtists,
+               List<JsonObject> artists,
+               JsonObject stats) {
+
+    static Catalog of(final List<Album> albums,
+                      final List<JsonObject> genres,
+                      final List<JsonObject> albumArtists,
+                      final List<JsonObject> artists,
+                      final JsonObject stats) {
+        final List<Album> frozenAlbums = albums.stream()
+                                               .map(album -> new Album(album.id(),
+                                                                       album.name(),
+                                                                       album.date(),
+                                                                       album.artist(),
+                                                                       List.copyOf(album.songs()),
+                                                                       album.addTime(),
+                                                                       album.modifiedTime(),
+                                                                       album.totalDuration()))
+                                               .toList();
+        final List<JsonObject> albumSummaries = frozenAlbums.stream()
+                                                            .map(album -> new JsonObject().put("id", album.id())
+                                                                                          .put("name", album.name())
+                                                                                          .put("artist", album.artist())
+                                                                                          .put("date", album.date())
+                                                                                          .put("addTime", album.addTime())
+                                                                                          .put("modifiedTime", album.modifiedTime())
+                                                                                          .put("totalDuration", album.totalDuration()))
+                                                            .toList();
+        final Map<Integer, Album> albumsById = new HashMap<>(frozenAlbums.size() * 2);
+        for (Album album : frozenAlbums) {
+            albumsById.put(album.id(), album);
+        }
+        return new Catalog(frozenAlbums,
+                           albumSummaries,
+                           Map.copyOf(albumsById),
+                           List.copyOf(genres),
+                           List.copyOf(albumArtists),
+                           List.copyOf(artists),
+                           stats);
+    }
+}
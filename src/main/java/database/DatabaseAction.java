@@ -30,8 +30,6 @@ enum DatabaseAction {
     INSERT_ALBUM,
     GET_GENRES,
     INSERT_ALBUM_ARTIST,
-    INSERT_ARTIST,
-    INSERT_GENRE,
     INSERT_SONG,
     GET_SONGS_DATA_FROM_PATHS,
     DELETE_SONGS_WITH_PATHS,
@@ -39,16 +37,133 @@ enum DatabaseAction {
     GET_STATS,
     SEARCH_ALBUMS,
     SEARCH_ARTISTS,
-    SEARCH_SONGS;
+    SEARCH_SONGS,
+    GET_SONG_FILE_STATS,
+    HAS_SONGS_SIZE_COLUMN,
+    ADD_SONGS_SIZE_COLUMN,
+    REFRESH_ALBUMS,
+    HAS_SONGS_TABLE,
+    DROP_ALBUM_ARTISTS_TABLE,
+    DROP_ALBUMS_TABLE,
+    DROP_ARTISTS_TABLE,
+    DROP_GENRES_TABLE,
+    DROP_SONGS_TABLE,
+    RENAME_ALBUM_ARTISTS_TABLE,
+    RENAME_ALBUMS_TABLE,
+    RENAME_ARTISTS_TABLE,
+    RENAME_GENRES_TABLE,
+    RENAME_SONGS_TABLE,
+    HAS_SEARCH_TABLES,
+    CREATE_SONGS_SEARCH_TABLE,
+    CREATE_ALBUM_ARTISTS_SEARCH_TABLE,
+    POPULATE_SONGS_SEARCH,
+    POPULATE_ALBUM_ARTISTS_SEARCH,
+    INSERT_SONG_SEARCH,
+    INSERT_ALBUM_ARTIST_SEARCH,
+    DELETE_SONGS_SEARCH_WITH_PATHS,
+    CLEAR_SONGS_SEARCH,
+    CLEAR_ALBUM_ARTISTS_SEARCH,
+    DROP_SONGS_SEARCH_TABLE,
+    DROP_ALBUM_ARTISTS_SEARCH_TABLE,
+    RENAME_SONGS_SEARCH_TABLE,
+    RENAME_ALBUM_ARTISTS_SEARCH_TABLE,
+    CREATE_ALBUMS_RECENT_INDEX,
+    GET_ALBUMS_PAGE_BY_NAME,
+    GET_ALBUMS_PAGE_BY_ADD_TIME,
+    GET_ALBUMS_FROM_IDS,
+    HAS_KEY_TABLES,
+    CREATE_ALBUM_KEYS_TABLE,
+    CREATE_ARTIST_KEYS_TABLE,
+    CREATE_GENRE_KEYS_TABLE,
+    SEED_ALBUM_KEYS,
+    SEED_ARTIST_KEYS,
+    SEED_GENRE_KEYS,
+    INSERT_ALBUM_KEY,
+    INSERT_ARTIST_KEY,
+    INSERT_GENRE_KEY,
+    GET_ALBUM_KEYS,
+    GET_ARTIST_KEYS,
+    GET_GENRE_KEYS,
+    CREATE_ALBUM_ID_CHANGES_TABLE,
+    CREATE_RENUMBERED_ARTISTS_TABLE,
+    CREATE_RENUMBERED_GENRES_TABLE,
+    DROP_RENUMBERED_ARTISTS_TABLE,
+    DROP_RENUMBERED_GENRES_TABLE,
+    MAP_ALBUM_IDS,
+    MAP_ARTIST_IDS,
+    MAP_GENRE_IDS,
+    RENUMBER_ALBUMS,
+    RENUMBER_SONGS,
+    RENUMBER_GENRES,
+    RENUMBER_ARTISTS,
+    RENUMBER_ALBUM_ARTISTS,
+    GET_ALBUM_ID_CHANGES,
+    CLEAR_ALBUM_ID_CHANGES,
+    CREATE_SCHEMA_VERSION_TABLE,
+    GET_SCHEMA_VERSION,
+    INSERT_SCHEMA_VERSION,
+    CREATE_SONGS_ALBUM_INDEX,
+    CREATE_ALBUM_ARTISTS_ALBUM_INDEX,
+    CREATE_ARTISTS_ALBUM_INDEX,
+    CREATE_GENRES_ALBUM_INDEX,
+    CREATE_LIBRARY_STATS_TABLE,
+    REFRESH_LIBRARY_STATS,
+    CREATE_ALBUM_INSERT_STATS_TRIGGER,
+    CREATE_ALBUM_DELETE_STATS_TRIGGER,
+    CREATE_SONG_INSERT_STATS_TRIGGER,
+    CREATE_SONG_UPDATE_STATS_TRIGGER,
+    CREATE_SONG_DELETE_STATS_TRIGGER,
+    CREATE_ARTIST_INSERT_STATS_TRIGGER,
+    CREATE_ARTIST_DELETE_STATS_TRIGGER,
+    GET_ALBUM_SUMMARIES,
+    GET_SONGS_FOR_ALBUMS,
+    GET_ALBUMS_OF_PATHS,
+    DELETE_GENRES_OF_ALBUMS,
+    DELETE_ARTISTS_OF_ALBUMS,
+    INSERT_GENRES_OF_ALBUMS,
+    INSERT_ARTISTS_OF_ALBUMS,
+    GET_ALBUM_IDS,
+    SEARCH_ALBUMS_BY_SUBSTRING,
+    SEARCH_ARTISTS_BY_SUBSTRING,
+    SEARCH_SONGS_BY_SUBSTRING,
+    CLEANUP_ALBUM_ARTISTS_SEARCH,
+    GET_SONG_FILE_STATS_UNDER_PATHS,
+    CREATE_SONGS_TRIGRAM_TABLE,
+    CREATE_ALBUMS_TRIGRAM_TABLE,
+    CREATE_ALBUM_ARTISTS_TRIGRAM_TABLE,
+    REBUILD_SONGS_TRIGRAM,
+    REBUILD_ALBUMS_TRIGRAM,
+    REBUILD_ALBUM_ARTISTS_TRIGRAM,
+    CREATE_SONG_INSERT_TRIGRAM_TRIGGER,
+    CREATE_SONG_UPDATE_TRIGRAM_TRIGGER,
+    CREATE_SONG_DELETE_TRIGRAM_TRIGGER,
+    CREATE_ALBUM_INSERT_TRIGRAM_TRIGGER,
+    CREATE_ALBUM_DELETE_TRIGRAM_TRIGGER,
+    CREATE_ALBUM_ARTIST_INSERT_TRIGRAM_TRIGGER,
+    CREATE_ALBUM_ARTIST_DELETE_TRIGRAM_TRIGGER,
+    SEARCH_ALBUMS_BY_TRIGRAM,
+    SEARCH_ARTISTS_BY_TRIGRAM,
+    SEARCH_SONGS_BY_TRIGRAM;
+
+    // library tables are written as {prefix}name in queries shared by the live and the shadow library
+    private static final String TABLE_PREFIX = "{prefix}";
+
+    private static final String SHADOW_TABLE_PREFIX = "shadow_";
 
     private static final Map<DatabaseAction, String> QUERY_MAP;
 
+    private static final Map<DatabaseAction, String> SHADOW_QUERY_MAP;
+
     static {
         final Map<DatabaseAction, String> builder = new HashMap<>();
+        final Map<DatabaseAction, String> shadowBuilder = new HashMap<>();
         for (DatabaseAction action : DatabaseAction.values()) {
-            builder.put(action, getSQLContent(action));
+            final String content = getSQLContent(action);
+            builder.put(action, content.replace(TABLE_PREFIX, ""));
+            shadowBuilder.put(action, content.replace(TABLE_PREFIX, SHADOW_TABLE_PREFIX));
         }
         QUERY_MAP = Map.copyOf(builder);
+        SHADOW_QUERY_MAP = Map.copyOf(shadowBuilder);
     }
 
     private static String getSQLContent(final DatabaseAction action) {
@@ -64,4 +179,12 @@ enum DatabaseAction {
     String query() {
         return QUERY_MAP.get(this);
     }
+
+    /**
+     * @param shadow whether to run against the shadow library a Build writes into
+     * @return sql query
+     */
+    String query(final boolean shadow) {
+        return shadow ? SHADOW_QUERY_MAP.get(this) : QUERY_MAP.get(this);
+    }
 }
@@ -1,5 +1,6 @@
 package database;
 
+import enums.AlbumSort;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
@@ -8,31 +9,72 @@ import io.vertx.jdbcclient.JDBCPool;
 import io.vertx.sqlclient.PoolOptions;
 import models.Album;
 import models.AlbumData;
+import models.Song;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import static config.ServerConfig.DATABASE_CONFIG;
 import static config.ServerConfig.DATABASE_FILE_PATH;
+import static config.ServerConfig.databaseReadPoolSize;
 
 
 public interface DatabaseService {
     static DatabaseService create(final Vertx vertx, final JsonObject config) {
         final String url = config.getString(DATABASE_CONFIG, DATABASE_FILE_PATH);
 
-        final JDBCConnectOptions connectOptions = new JDBCConnectOptions()
-                .setJdbcUrl("jdbc:sqlite:" + url + "?foreign_keys=on");
-        final PoolOptions poolOptions = new PoolOptions().setMaxSize(1);
-        final var pool = JDBCPool.pool(vertx, connectOptions, poolOptions);
-        return new DatabaseServiceImpl(pool);
+        // WAL is persisted in the database file, readers opened afterward use it as well
+        final JDBCConnectOptions writeConnectOptions = new JDBCConnectOptions()
+                .setJdbcUrl("jdbc:sqlite:" + url + "?foreign_keys=on&journal_mode=WAL&synchronous=NORMAL");
+        final var writePool = JDBCPool.pool(vertx, writeConnectOptions, new PoolOptions().setMaxSize(1));
+
+        // open_mode=1 is SQLITE_OPEN_READONLY
+        final JDBCConnectOptions readConnectOptions = new JDBCConnectOptions()
+                .setJdbcUrl("jdbc:sqlite:" + url + "?open_mode=1");
+        final var readPool = JDBCPool.pool(vertx, readConnectOptions, new PoolOptions().setMaxSize(databaseReadPoolSize(config)));
+        return new DatabaseServiceImpl(writePool, readPool);
     }
 
     Future<Void> initialization();
 
+    /**
+     * Reload the in-memory catalog serving albums, genres, artists and stats, and drop cached query results.
+     * Queries go to the database until the first catalog is loaded.
+     */
+    Future<Void> refreshCatalog();
+
     Future<List<Album>> albums();
 
+    /**
+     * Page through albums without their songs, using the last album of the previous page as cursor.
+     *
+     * @param first  page size
+     * @param after  {@code endCursor} of the previous page, null for the first page
+     * @param sortBy album order
+     * @return albums of the page, {@code endCursor} and {@code hasNextPage}
+     */
+    Future<JsonObject> albums(int first, String after, AlbumSort sortBy);
+
+    /**
+     * @return albums without their songs, resolve songs of the albums needed with {@link #songsForAlbums(Collection)}
+     */
+    Future<List<JsonObject>> albumSummaries();
+
+    /**
+     * @param ids album ids
+     * @return songs in track order by album id, albums not found are left out
+     */
+    Future<Map<Integer, List<Song>>> songsForAlbums(Collection<Integer> ids);
+
     Future<Album> album(int id);
 
+    /**
+     * @param ids album ids
+     * @return albums found, in no particular order
+     */
+    Future<List<Album>> albumsFromIds(Collection<Integer> ids);
+
     Future<List<JsonObject>> genres();
 
     Future<List<JsonObject>> albumsForGenre(int id);
@@ -45,7 +87,35 @@ public interface DatabaseService {
 
     Future<List<JsonObject>> albumsForArtist(int id);
 
-    Future<Void> scan(List<AlbumData> albums);
+    /**
+     * Write albums to the library, albums, artists and genres get stable ids by their names.
+     *
+     * @param albums albums to add or update
+     * @return album ids, in the order of the given albums
+     */
+    Future<List<Integer>> scan(List<AlbumData> albums);
+
+    /**
+     * Start a Build into empty shadow tables, the live library keeps serving queries until {@link #commitRebuild()}.
+     */
+    Future<Void> beginRebuild();
+
+    /**
+     * @return whether shadow tables of an unfinished Build exist
+     */
+    Future<Boolean> isRebuilding();
+
+    /**
+     * Same as {@link #scan(List)} against the shadow tables.
+     */
+    Future<List<Integer>> rebuild(List<AlbumData> albums);
+
+    Future<Void> removeRebuiltSongs(List<String> paths);
+
+    /**
+     * Replace the live library with the shadow tables in a single transaction.
+     */
+    Future<Void> commitRebuild();
 
     Future<List<JsonObject>> songsFromPath(Collection<String> paths);
 
@@ -57,6 +127,29 @@ public interface DatabaseService {
 
     Future<List<String>> songPaths();
 
+    /**
+     * @return ids of every album in the library, read from the database rather than the catalog
+     */
+    Future<List<Integer>> albumIds();
+
+    /**
+     * @return new album id by old album id, for albums renumbered by a schema migration whose covers were not moved yet
+     */
+    Future<Map<Integer, Integer>> albumIdChanges();
+
+    /**
+     * Forget renumbered albums once their covers are moved.
+     */
+    Future<Void> clearAlbumIdChanges();
+
+    Future<List<JsonObject>> songFileStats();
+
+    /**
+     * @param paths song files or directories
+     * @return stats of songs at or under the paths
+     */
+    Future<List<JsonObject>> songFileStats(Collection<String> paths);
+
     Future<Void> removeSongs(List<String> paths);
 
     Future<Void> clearDatabase();
@@ -1,232 +1,651 @@
 package database;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import enums.AlbumSort;
 import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.sqlclient.Pool;
 import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlConnection;
 import io.vertx.sqlclient.Tuple;
 import models.Album;
 import models.AlbumData;
 import models.Song;
 import models.SongData;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.util.Strings;
 import org.apache.logging.log4j.util.Supplier;
 
+import java.io.File;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
 class DatabaseServiceImpl implements DatabaseService {
+    private static final Logger LOGGER = LogManager.getLogger(DatabaseServiceImpl.class);
 
-    private final Pool pool;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private static final int RESULT_CACHE_SIZE = 1000;
+
+    // characters per token of the trigram index
+    private static final int TRIGRAM_LENGTH = 3;
+
+    // library only changes with DATABASE_UPDATE, expiry just bounds how long rarely used results are kept
+    private static final Duration RESULT_CACHE_TTL = Duration.ofMinutes(30);
+
+    // single connection for every write, so scan transactions never contend with each other
+    private final Pool writePool;
+
+    // read only connections, in WAL mode readers keep reading the last commit while a scan is writing
+    private final Pool readPool;
+
+    // swapped as a whole, readers never see a half built catalog
+    private final AtomicReference<CatalogState> catalogState = new AtomicReference<>(new CatalogState(0, null));
+
+    // bumped on every library change, results cached by an older generation are never returned
+    private final AtomicLong resultGeneration = new AtomicLong();
+
+    // results of read queries the catalog does not hold, queries in flight are shared by concurrent callers
+    private final Cache<ResultKey, Future<?>> resultCache = Caffeine.newBuilder()
+                                                                    .maximumSize(RESULT_CACHE_SIZE)
+                                                                    .expireAfterWrite(RESULT_CACHE_TTL)
+                                                                    .build();
+
+    // ordered by version, append new schema changes at the end
+    private final List<Migration> migrations = List.of(new Migration(1, this::addSongsSizeColumn),
+                                                       new Migration(2, this::createSearchIndex),
+                                                       new Migration(3, this::createKeyTables),
+                                                       new Migration(4, this::createAlbumIndexes),
+                                                       new Migration(5, this::createLibraryStats),
+                                                       new Migration(6, this::createTrigramIndex));
 
     DatabaseServiceImpl(final Pool pool) {
-        this.pool = pool;
+        this(pool, pool);
+    }
+
+    DatabaseServiceImpl(final Pool writePool, final Pool readPool) {
+        this.writePool = writePool;
+        this.readPool = readPool;
     }
 
     @Override
     public Future<Void> initialization() {
-        return pool.getConnection()
-                   .compose(connection -> connection.begin()
-                                                    .compose(transaction -> connection
-                                                            .query(DatabaseAction.CREATE_ALBUMS_TABLE.query())
-                                                            .execute()
-                                                            .compose(__ -> connection
-                                                                    .query(DatabaseAction.CREATE_SONGS_TABLE.query())
-                                                                    .execute())
-                                                            .compose(__ -> connection
-                                                                    .query(DatabaseAction.CREATE_GENRES_TABLE.query())
-                                                                    .execute())
-                                                            .compose(__ -> connection
-                                                                    .query(DatabaseAction.CREATE_ARTISTS_TABLE.query())
-                                                                    .execute())
-                                                            .compose(__ -> connection
-                                                                    .query(DatabaseAction.CREATE_ALBUMS_ADD_TIME_INDEX.query())
-                                                                    .execute())
-                                                            .compose(__ -> connection
-                                                                    .query(DatabaseAction.CREATE_ALBUM_ARTISTS_TABLE.query())
-                                                                    .execute())
-                                                            .compose(__ -> transaction.commit()))
-                                                    .eventually((Supplier<Future<Void>>) connection::close));
+        return writePool.getConnection()
+                        .compose(connection -> connection.begin()
+                                                         .compose(transaction -> connection
+                                                                 .query(DatabaseAction.CREATE_ALBUMS_TABLE.query())
+                                                                 .execute()
+                                                                 .compose(__ -> connection
+                                                                         .query(DatabaseAction.CREATE_SONGS_TABLE.query())
+                                                                         .execute())
+                                                                 .compose(__ -> connection
+                                                                         .query(DatabaseAction.CREATE_GENRES_TABLE.query())
+                                                                         .execute())
+                                                                 .compose(__ -> connection
+                                                                         .query(DatabaseAction.CREATE_ARTISTS_TABLE.query())
+                                                                         .execute())
+                                                                 .compose(__ -> connection
+                                                                         .query(DatabaseAction.CREATE_ALBUMS_ADD_TIME_INDEX.query())
+                                                                         .execute())
+                                                                 .compose(__ -> connection
+                                                                         .query(DatabaseAction.CREATE_ALBUMS_RECENT_INDEX.query())
+                                                                         .execute())
+                                                                 .compose(__ -> connection
+                                                                         .query(DatabaseAction.CREATE_ALBUM_ARTISTS_TABLE.query())
+                                                                         .execute())
+                                                                 .compose(__ -> migrate(connection))
+                                                                 .compose(__ -> transaction.commit()))
+                                                         .eventually((Supplier<Future<Void>>) connection::close));
+    }
+
+    @Override
+    public Future<Void> refreshCatalog() {
+        // reads fall back to the database until the new snapshot is ready
+        final CatalogState pending = catalogState.updateAndGet(state -> new CatalogState(state.generation() + 1, null));
+        invalidateResults();
+        return Future.all(queryAlbums(), queryGenres(), queryAlbumArtists(), queryArtists(), queryStats())
+                     .map(compositeFuture -> Catalog.of(compositeFuture.resultAt(0),
+                                                        compositeFuture.resultAt(1),
+                                                        compositeFuture.resultAt(2),
+                                                        compositeFuture.resultAt(3),
+                                                        compositeFuture.resultAt(4)))
+                     .onSuccess(catalog -> {
+                         // a newer update invalidated the catalog while loading, leave it to the newer refresh
+                         if (catalogState.compareAndSet(pending, new CatalogState(pending.generation(), catalog))) {
+                             LOGGER.info("Catalog refreshed with {} albums.", catalog.albums().size());
+                         }
+                     })
+                     .<Void>mapEmpty()
+                     .recover(e -> {
+                         LOGGER.error("Fail to refresh catalog, serve queries from database.", e);
+                         return Future.succeededFuture();
+                     });
     }
 
     @Override
     public Future<List<Album>> albums() {
-        return pool.query(DatabaseAction.GET_ALBUMS.query())
-                   .execute()
-                   .map(rows -> {
-                       final Map<Integer, Album> albums = new HashMap<>();
-                       for (Row row : rows) {
-                           final int id = row.getInteger("album_id");
-                           albums.compute(id, (albumId, album) -> {
-                               if (album == null) {
-                                   album = Album.builder()
-                                                .id(id)
-                                                .name(row.getString("album_name"))
-                                                .artist(row.getString("album_artist"))
-                                                .songs(new ArrayList<>())
-                                                .date(row.getString("album_date"))
-                                                .addTime(row.getLong("album_add_time"))
-                                                .modifiedTime(row.getLong("album_modified_time"))
-                                                .totalDuration(row.getInteger("album_total_duration"))
-                                                .build();
-                               }
-                               final var song = Song.builder()
-                                                    .albumId(id)
-                                                    .album(album.name())
-                                                    .name(row.getString("song_name"))
-                                                    .artists(row.getString("song_artists"))
-                                                    .path(row.getString("song_path"))
-                                                    .disc(row.getInteger("song_disc"))
-                                                    .trackNum(row.getInteger("song_track_num"))
-                                                    .duration(row.getInteger("song_duration"))
-                                                    .build();
-
-                               album.songs().add(song);
-                               return album;
-                           });
-                       }
-                       return new ArrayList<>(albums.values());
-                   });
+        final Catalog catalog = catalogState.get().catalog();
+        return catalog == null ? queryAlbums() : Future.succeededFuture(catalog.albums());
     }
 
     @Override
     public Future<Album> album(final int id) {
-        return pool.preparedQuery(DatabaseAction.GET_ALBUM.query())
-                   .execute(Tuple.of(id))
-                   .map(rows -> {
-                       Album.Builder albumBuilder = null;
-                       final List<Song> songs = new ArrayList<>();
-                       for (Row row : rows) {
-                           if (albumBuilder == null) {
-                               albumBuilder = Album.builder()
-                                                   .id(id)
-                                                   .name(row.getString("album_name"))
-                                                   .artist(row.getString("album_artist"))
-                                                   .date(row.getString("album_date"))
-                                                   .addTime(row.getLong("album_add_time"))
-                                                   .modifiedTime(row.getLong("album_modified_time"))
-                                                   .totalDuration(row.getInteger(("album_total_duration")));
-                           }
-                           songs.add(Song.builder()
-                                         .albumId(id)
-                                         .album(row.getString("album_name"))
-                                         .name(row.getString("song_name"))
-                                         .artists(row.getString("song_artists"))
-                                         .path(row.getString("song_path"))
-                                         .disc(row.getInteger("song_disc"))
-                                         .trackNum(row.getInteger("song_track_num"))
-                                         .duration(row.getInteger("song_duration"))
-                                         .build());
-                       }
-                       if (albumBuilder == null) {
-                           throw new IllegalArgumentException("Rows should not be empty.");
-                       }
-                       return albumBuilder.songs(songs).build();
-                   });
+        final Catalog catalog = catalogState.get().catalog();
+        final Album album = catalog == null ? null : catalog.albumsById().get(id);
+        return album == null ? cached("album", List.of(id), () -> queryAlbum(id)) : Future.succeededFuture(album);
     }
 
     @Override
     public Future<List<JsonObject>> genres() {
-        return pool.query(DatabaseAction.GET_GENRES.query())
-                   .execute()
-                   .map(rows -> {
-                       final List<JsonObject> genres = new ArrayList<>();
-                       for (Row row : rows) {
-                           genres.add(row.toJson());
-                       }
-                       return genres;
-                   });
+        final Catalog catalog = catalogState.get().catalog();
+        return catalog == null ? queryGenres() : Future.succeededFuture(catalog.genres());
     }
 
     @Override
-    public Future<List<JsonObject>> albumsForGenre(final int id) {
-        return pool.preparedQuery(DatabaseAction.GET_ALBUMS_FOR_GENRE.query())
-                   .execute(Tuple.of(id))
-                   .map(rows -> {
-                       final List<JsonObject> albums = new ArrayList<>();
-                       for (Row row : rows) {
-                           albums.add(row.toJson());
-                       }
-                       return albums;
-                   });
+    public Future<List<JsonObject>> albumArtists() {
+        final Catalog catalog = catalogState.get().catalog();
+        return catalog == null ? queryAlbumArtists() : Future.succeededFuture(catalog.albumArtists());
     }
 
     @Override
-    public Future<List<JsonObject>> albumArtists() {
-        return pool.query(DatabaseAction.GET_ALBUM_ARTISTS.query())
-                   .execute()
-                   .map(rows -> {
-                       final List<JsonObject> genres = new ArrayList<>();
-                       for (Row row : rows) {
-                           genres.add(row.toJson());
-                       }
-                       return genres;
-                   });
+    public Future<List<JsonObject>> artists() {
+        final Catalog catalog = catalogState.get().catalog();
+        return catalog == null ? queryArtists() : Future.succeededFuture(catalog.artists());
     }
 
     @Override
-    public Future<List<JsonObject>> albumsForAlbumArtist(final int id) {
-        return pool.preparedQuery(DatabaseAction.GET_ALBUMS_FOR_ALBUM_ARTIST.query())
-                   .execute(Tuple.of(id))
-                   .map(rows -> {
-                       final List<JsonObject> albums = new ArrayList<>();
-                       for (Row row : rows) {
-                           albums.add(row.toJson());
-                       }
-                       return albums;
-                   });
+    public Future<JsonObject> stats() {
+        final Catalog catalog = catalogState.get().catalog();
+        return catalog == null ? queryStats() : Future.succeededFuture(catalog.stats());
     }
 
     @Override
-    public Future<List<JsonObject>> artists() {
-        return pool.query(DatabaseAction.GET_ARTISTS.query())
-                   .execute()
-                   .map(rows -> {
-                       final List<JsonObject> genres = new ArrayList<>();
-                       for (Row row : rows) {
-                           genres.add(row.toJson());
-                       }
-                       return genres;
-                   });
+    public Future<List<JsonObject>> albumSummaries() {
+        final Catalog catalog = catalogState.get().catalog();
+        return catalog == null ? queryAlbumSummaries() : Future.succeededFuture(catalog.albumSummaries());
+    }
+
+    private Future<List<JsonObject>> queryAlbumSummaries() {
+        return readPool.query(DatabaseAction.GET_ALBUM_SUMMARIES.query())
+                       .execute()
+                       .map(rows -> {
+                           final List<JsonObject> albums = new ArrayList<>();
+                           for (Row row : rows) {
+                               albums.add(row.toJson());
+                           }
+                           return albums;
+                       });
+    }
+
+    @Override
+    public Future<Map<Integer, List<Song>>> songsForAlbums(final Collection<Integer> ids) {
+        final Catalog catalog = catalogState.get().catalog();
+        if (catalog != null) {
+            final Map<Integer, List<Song>> songs = new HashMap<>(ids.size() * 2);
+            for (Integer id : ids) {
+                final Album album = catalog.albumsById().get(id);
+                if (album != null) {
+                    songs.put(id, album.songs());
+                }
+            }
+            return Future.succeededFuture(songs);
+        }
+        return readPool.preparedQuery(DatabaseAction.GET_SONGS_FOR_ALBUMS.query())
+                       .execute(Tuple.of(jsonArray(ids)))
+                       .map(rows -> {
+                           final Map<Integer, List<Song>> songs = new HashMap<>(ids.size() * 2);
+                           for (Row row : rows) {
+                               final int albumId = row.getInteger("album_id");
+                               songs.computeIfAbsent(albumId, __ -> new ArrayList<>())
+                                    .add(Song.builder()
+                                             .albumId(albumId)
+                                             .album(row.getString("album_name"))
+                                             .name(row.getString("song_name"))
+                                             .artists(row.getString("song_artists"))
+                                             .path(row.getString("song_path"))
+                                             .disc(row.getInteger("song_disc"))
+                                             .trackNum(row.getInteger("song_track_num"))
+                                             .duration(row.getInteger("song_duration"))
+                                             .build());
+                           }
+                           return songs;
+                       });
+    }
+
+    private Future<List<Album>> queryAlbums() {
+        return readPool.query(DatabaseAction.GET_ALBUMS.query())
+                       .execute()
+                       .map(DatabaseServiceImpl::toAlbums);
+    }
+
+    @Override
+    public Future<List<Album>> albumsFromIds(final Collection<Integer> ids) {
+        final Catalog catalog = catalogState.get().catalog();
+        if (catalog != null) {
+            return Future.succeededFuture(ids.stream()
+                                             .map(catalog.albumsById()::get)
+                                             .filter(Objects::nonNull)
+                                             .toList());
+        }
+        return readPool.preparedQuery(DatabaseAction.GET_ALBUMS_FROM_IDS.query())
+                       .execute(Tuple.of(jsonArray(ids)))
+                       .map(DatabaseServiceImpl::toAlbums);
+    }
+
+    private static List<Album> toAlbums(final RowSet<Row> rows) {
+        final Map<Integer, Album> albums = new HashMap<>();
+        for (Row row : rows) {
+            final int id = row.getInteger("album_id");
+            albums.compute(id, (albumId, album) -> {
+                if (album == null) {
+                    album = Album.builder()
+                                 .id(id)
+                                 .name(row.getString("album_name"))
+                                 .artist(row.getString("album_artist"))
+                                 .songs(new ArrayList<>())
+                                 .date(row.getString("album_date"))
+                                 .addTime(row.getLong("album_add_time"))
+                                 .modifiedTime(row.getLong("album_modified_time"))
+                                 .totalDuration(row.getInteger("album_total_duration"))
+                                 .build();
+                }
+                final var song = Song.builder()
+                                     .albumId(id)
+                                     .album(album.name())
+                                     .name(row.getString("song_name"))
+                                     .artists(row.getString("song_artists"))
+                                     .path(row.getString("song_path"))
+                                     .disc(row.getInteger("song_disc"))
+                                     .trackNum(row.getInteger("song_track_num"))
+                                     .duration(row.getInteger("song_duration"))
+                                     .build();
+
+                album.songs().add(song);
+                return album;
+            });
+        }
+        return new ArrayList<>(albums.values());
+    }
+
+    @Override
+    public Future<JsonObject> albums(final int first, final String after, final AlbumSort sortBy) {
+        if (first < 1 || first > MAX_PAGE_SIZE) {
+            return Future.failedFuture(new IllegalArgumentException("first should be between 1 and " + MAX_PAGE_SIZE + "."));
+        }
+        final JsonArray cursor;
+        try {
+            // start before the first album of either order
+            cursor = after == null ? JsonArray.of("", Long.MAX_VALUE, 0) : decodeCursor(after);
+        } catch (IllegalArgumentException e) {
+            return Future.failedFuture(e);
+        }
+        return cached("albumPage", Arrays.asList(first, after, sortBy), () -> queryAlbumPage(first, after, cursor, sortBy));
+    }
+
+    private Future<JsonObject> queryAlbumPage(final int first, final String after, final JsonArray cursor, final AlbumSort sortBy) {
+        final String name = cursor.getString(0);
+        final long addTime = cursor.getLong(1);
+        final int id = cursor.getInteger(2);
+
+        // fetch one more album to tell whether there is a next page
+        final Future<RowSet<Row>> rows = switch (sortBy) {
+            case NAME -> readPool.preparedQuery(DatabaseAction.GET_ALBUMS_PAGE_BY_NAME.query())
+                                 .execute(Tuple.of(name, name, addTime, addTime, id, first + 1));
+            case ADD_TIME -> readPool.preparedQuery(DatabaseAction.GET_ALBUMS_PAGE_BY_ADD_TIME.query())
+                                     .execute(Tuple.of(addTime, addTime, id, first + 1));
+        };
+        return rows.map(result -> {
+            final List<JsonObject> albums = new ArrayList<>(first);
+            for (Row row : result) {
+                if (albums.size() < first) {
+                    albums.add(row.toJson());
+                }
+            }
+            final JsonObject last = albums.isEmpty() ? null : albums.getLast();
+            return new JsonObject().put("albums", albums)
+                                   .put("endCursor", last == null ? after : encodeCursor(last))
+                                   .put("hasNextPage", result.size() > first);
+        });
+    }
+
+    static String encodeCursor(final JsonObject album) {
+        final JsonArray cursor = JsonArray.of(album.getString("name"), album.getLong("addTime"), album.getInteger("id"));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.toBuffer().getBytes());
+    }
+
+    static JsonArray decodeCursor(final String cursor) {
+        try {
+            final JsonArray decoded = new JsonArray(Buffer.buffer(Base64.getUrlDecoder().decode(cursor)));
+            // read every field so a malformed cursor fails here instead of in the query
+            if (decoded.size() != 3
+                || decoded.getString(0) == null
+                || decoded.getLong(1) == null
+                || decoded.getInteger(2) == null) {
+                throw new IllegalArgumentException("Invalid cursor " + cursor);
+            }
+            return decoded;
+        } catch (DecodeException | ClassCastException e) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor, e);
+        }
+    }
+
+    private Future<Album> queryAlbum(final int id) {
+        return readPool.preparedQuery(DatabaseAction.GET_ALBUM.query())
+                       .execute(Tuple.of(id))
+                       .map(rows -> {
+                           Album.Builder albumBuilder = null;
+                           final List<Song> songs = new ArrayList<>();
+                           for (Row row : rows) {
+                               if (albumBuilder == null) {
+                                   albumBuilder = Album.builder()
+                                                       .id(id)
+                                                       .name(row.getString("album_name"))
+                                                       .artist(row.getString("album_artist"))
+                                                       .date(row.getString("album_date"))
+                                                       .addTime(row.getLong("album_add_time"))
+                                                       .modifiedTime(row.getLong("album_modified_time"))
+                                                       .totalDuration(row.getInteger(("album_total_duration")));
+                               }
+                               songs.add(Song.builder()
+                                             .albumId(id)
+                                             .album(row.getString("album_name"))
+                                             .name(row.getString("song_name"))
+                                             .artists(row.getString("song_artists"))
+                                             .path(row.getString("song_path"))
+                                             .disc(row.getInteger("song_disc"))
+                                             .trackNum(row.getInteger("song_track_num"))
+                                             .duration(row.getInteger("song_duration"))
+                                             .build());
+                           }
+                           if (albumBuilder == null) {
+                               throw new IllegalArgumentException("Rows should not be empty.");
+                           }
+                           return albumBuilder.songs(songs).build();
+                       });
+    }
+
+    private Future<List<JsonObject>> queryGenres() {
+        return readPool.query(DatabaseAction.GET_GENRES.query())
+                       .execute()
+                       .map(rows -> {
+                           final List<JsonObject> genres = new ArrayList<>();
+                           for (Row row : rows) {
+                               genres.add(row.toJson());
+                           }
+                           return genres;
+                       });
+    }
+
+    @Override
+    public Future<List<JsonObject>> albumsForGenre(final int id) {
+        return cached("albumsForGenre", List.of(id), () -> queryAlbumsForGenre(id));
+    }
+
+    private Future<List<JsonObject>> queryAlbumsForGenre(final int id) {
+        return readPool.preparedQuery(DatabaseAction.GET_ALBUMS_FOR_GENRE.query())
+                       .execute(Tuple.of(id))
+                       .map(rows -> {
+                           final List<JsonObject> albums = new ArrayList<>();
+                           for (Row row : rows) {
+                               albums.add(row.toJson());
+                           }
+                           return albums;
+                       });
+    }
+
+    private Future<List<JsonObject>> queryAlbumArtists() {
+        return readPool.query(DatabaseAction.GET_ALBUM_ARTISTS.query())
+                       .execute()
+                       .map(rows -> {
+                           final List<JsonObject> genres = new ArrayList<>();
+                           for (Row row : rows) {
+                               genres.add(row.toJson());
+                           }
+                           return genres;
+                       });
+    }
+
+    @Override
+    public Future<List<JsonObject>> albumsForAlbumArtist(final int id) {
+        return cached("albumsForAlbumArtist", List.of(id), () -> queryAlbumsForAlbumArtist(id));
+    }
+
+    private Future<List<JsonObject>> queryAlbumsForAlbumArtist(final int id) {
+        return readPool.preparedQuery(DatabaseAction.GET_ALBUMS_FOR_ALBUM_ARTIST.query())
+                       .execute(Tuple.of(id))
+                       .map(rows -> {
+                           final List<JsonObject> albums = new ArrayList<>();
+                           for (Row row : rows) {
+                               albums.add(row.toJson());
+                           }
+                           return albums;
+                       });
+    }
+
+    private Future<List<JsonObject>> queryArtists() {
+        return readPool.query(DatabaseAction.GET_ARTISTS.query())
+                       .execute()
+                       .map(rows -> {
+                           final List<JsonObject> genres = new ArrayList<>();
+                           for (Row row : rows) {
+                               genres.add(row.toJson());
+                           }
+                           return genres;
+                       });
     }
 
     @Override
     public Future<List<JsonObject>> albumsForArtist(final int id) {
-        return pool.preparedQuery(DatabaseAction.GET_ALBUMS_FOR_ARTIST.query())
-                   .execute(Tuple.of(id))
-                   .map(rows -> {
-                       final List<JsonObject> albums = new ArrayList<>();
-                       for (Row row : rows) {
-                           albums.add(row.toJson());
-                       }
-                       return albums;
-                   });
+        return cached("albumsForArtist", List.of(id), () -> queryAlbumsForArtist(id));
+    }
+
+    private Future<List<JsonObject>> queryAlbumsForArtist(final int id) {
+        return readPool.preparedQuery(DatabaseAction.GET_ALBUMS_FOR_ARTIST.query())
+                       .execute(Tuple.of(id))
+                       .map(rows -> {
+                           final List<JsonObject> albums = new ArrayList<>();
+                           for (Row row : rows) {
+                               albums.add(row.toJson());
+                           }
+                           return albums;
+                       });
     }
 
     @Override
-    public Future<Void> scan(final List<AlbumData> albums) {
+    public Future<List<Integer>> scan(final List<AlbumData> albums) {
+        return writeAlbums(albums, false).onComplete(__ -> invalidateResults());
+    }
+
+    @Override
+    public Future<Void> beginRebuild() {
+        return writePool.getConnection()
+                        .compose(connection -> connection.begin()
+                                                         .compose(transaction -> executeInOrder(connection, createShadowQueries())
+                                                                 .compose(__ -> transaction.commit()))
+                                                         .eventually((Supplier<Future<Void>>) connection::close));
+    }
+
+    /**
+     * Drop the shadow library left by an earlier Build and create an empty one.
+     */
+    private static List<String> createShadowQueries() {
+        return List.of(DatabaseAction.DROP_ALBUM_ARTISTS_TABLE.query(true),
+                       DatabaseAction.DROP_ARTISTS_TABLE.query(true),
+                       DatabaseAction.DROP_GENRES_TABLE.query(true),
+                       DatabaseAction.DROP_SONGS_TABLE.query(true),
+                       DatabaseAction.DROP_ALBUMS_TABLE.query(true),
+                       DatabaseAction.CREATE_ALBUMS_TABLE.query(true),
+                       DatabaseAction.CREATE_SONGS_TABLE.query(true),
+                       DatabaseAction.CREATE_GENRES_TABLE.query(true),
+                       DatabaseAction.CREATE_ARTISTS_TABLE.query(true),
+                       DatabaseAction.CREATE_ALBUM_ARTISTS_TABLE.query(true),
+                       DatabaseAction.DROP_SONGS_SEARCH_TABLE.query(true),
+                       DatabaseAction.DROP_ALBUM_ARTISTS_SEARCH_TABLE.query(true),
+                       DatabaseAction.CREATE_SONGS_SEARCH_TABLE.query(true),
+                       DatabaseAction.CREATE_ALBUM_ARTISTS_SEARCH_TABLE.query(true));
+    }
+
+    @Override
+    public Future<Boolean> isRebuilding() {
+        return writePool.query(DatabaseAction.HAS_SONGS_TABLE.query(true))
+                        .execute()
+                        .map(rows -> rows.iterator().next().getInteger("count") > 0);
+    }
+
+    @Override
+    public Future<List<Integer>> rebuild(final List<AlbumData> albums) {
+        return writeAlbums(albums, true);
+    }
+
+    @Override
+    public Future<Void> removeRebuiltSongs(final List<String> paths) {
+        return deleteSongs(paths, true);
+    }
+
+    @Override
+    public Future<Void> commitRebuild() {
+        return writePool.getConnection()
+                        .compose(connection -> connection.begin()
+                                                         .compose(transaction -> executeInOrder(connection, swapShadowQueries())
+                                                                 .compose(__ -> executeInOrder(connection, libraryStatsQueries()))
+                                                                 .compose(__ -> executeInOrder(connection, trigramIndexQueries()))
+                                                                 .compose(__ -> transaction.commit()))
+                                                         .eventually((Supplier<Future<Void>>) connection::close))
+                        .onComplete(__ -> invalidateResults());
+    }
+
+    /**
+     * Replace the live library by the shadow library and index it.
+     */
+    private static List<String> swapShadowQueries() {
+        // children first, dropping albums while referenced would cascade row by row
+        return List.of(DatabaseAction.DROP_ALBUM_ARTISTS_TABLE.query(),
+                       DatabaseAction.DROP_ARTISTS_TABLE.query(),
+                       DatabaseAction.DROP_GENRES_TABLE.query(),
+                       DatabaseAction.DROP_SONGS_TABLE.query(),
+                       DatabaseAction.DROP_ALBUMS_TABLE.query(),
+                       DatabaseAction.RENAME_ALBUMS_TABLE.query(true),
+                       DatabaseAction.RENAME_SONGS_TABLE.query(true),
+                       DatabaseAction.RENAME_GENRES_TABLE.query(true),
+                       DatabaseAction.RENAME_ARTISTS_TABLE.query(true),
+                       DatabaseAction.RENAME_ALBUM_ARTISTS_TABLE.query(true),
+                       DatabaseAction.DROP_SONGS_SEARCH_TABLE.query(),
+                       DatabaseAction.DROP_ALBUM_ARTISTS_SEARCH_TABLE.query(),
+                       DatabaseAction.RENAME_SONGS_SEARCH_TABLE.query(true),
+                       DatabaseAction.RENAME_ALBUM_ARTISTS_SEARCH_TABLE.query(true),
+                       DatabaseAction.CREATE_ALBUMS_ADD_TIME_INDEX.query(),
+                       DatabaseAction.CREATE_ALBUMS_RECENT_INDEX.query(),
+                       DatabaseAction.CREATE_SONGS_ALBUM_INDEX.query(),
+                       DatabaseAction.CREATE_ALBUM_ARTISTS_ALBUM_INDEX.query(),
+                       DatabaseAction.CREATE_ARTISTS_ALBUM_INDEX.query(),
+                       DatabaseAction.CREATE_GENRES_ALBUM_INDEX.query());
+    }
+
+    private Future<List<Integer>> writeAlbums(final List<AlbumData> albums, final boolean shadow) {
         if (albums.isEmpty()) {
-            return Future.succeededFuture();
+            return Future.succeededFuture(List.of());
         }
+        return writePool.getConnection()
+                        .compose(connection ->
+                                         connection.begin()
+                                                   .compose(transaction -> resolveKeys(connection, albums)
+                                                           .compose(keys -> insertAlbums(connection, albums, keys, shadow))
+                                                           .compose(ids -> transaction.commit().map(ids)))
+                                                   .eventually((Supplier<Future<Void>>) connection::close));
+    }
+
+    /**
+     * Look up ids of albums, artists and genres by their natural keys, ids are allocated for names seen the first time.
+     * Key tables are shared by the live and the shadow library, so ids survive a Build.
+     */
+    private static Future<LibraryKeys> resolveKeys(final SqlConnection connection, final List<AlbumData> albums) {
+        final Set<List<String>> albumKeys = new LinkedHashSet<>();
+        final Set<String> artistNames = new LinkedHashSet<>();
+        final Set<String> genreNames = new LinkedHashSet<>();
+        for (final AlbumData album : albums) {
+            albumKeys.add(albumKey(album));
+            if (Strings.isNotBlank(album.artist())) {
+                artistNames.add(album.artist());
+            }
+            for (final SongData song : album.songs()) {
+                if (Strings.isNotBlank(song.artist())) {
+                    artistNames.add(song.artist());
+                }
+                if (Strings.isNotBlank(song.genre())) {
+                    genreNames.add(song.genre());
+                }
+            }
+        }
+        return Future.all(executeBatch(connection,
+                                       DatabaseAction.INSERT_ALBUM_KEY.query(),
+                                       albumKeys.stream().map(key -> Tuple.of(key.get(0), key.get(1))).toList()),
+                          executeBatch(connection,
+                                       DatabaseAction.INSERT_ARTIST_KEY.query(),
+                                       artistNames.stream().map(Tuple::of).toList()),
+                          executeBatch(connection,
+                                       DatabaseAction.INSERT_GENRE_KEY.query(),
+                                       genreNames.stream().map(Tuple::of).toList()))
+                     .compose(__ -> Future.all(connection.preparedQuery(DatabaseAction.GET_ALBUM_KEYS.query())
+                                                         .execute(Tuple.of(jsonArray(albumKeys))),
+                                               connection.preparedQuery(DatabaseAction.GET_ARTIST_KEYS.query())
+                                                         .execute(Tuple.of(jsonArray(artistNames))),
+                                               connection.preparedQuery(DatabaseAction.GET_GENRE_KEYS.query())
+                                                         .execute(Tuple.of(jsonArray(genreNames)))))
+                     .map(compositeFuture -> {
+                         final Map<List<String>, Integer> albumIds = new HashMap<>();
+                         for (Row row : compositeFuture.<RowSet<Row>>resultAt(0)) {
+                             albumIds.put(List.of(row.getString("name"), row.getString("artist")), row.getInteger("id"));
+                         }
+                         return new LibraryKeys(albumIds,
+                                                nameIds(compositeFuture.resultAt(1)),
+                                                nameIds(compositeFuture.resultAt(2)));
+                     });
+    }
+
+    private static Future<List<Integer>> insertAlbums(final SqlConnection connection,
+                                                      final List<AlbumData> albums,
+                                                      final LibraryKeys keys,
+                                                      final boolean shadow) {
+        final List<Integer> albumIds = new ArrayList<>(albums.size());
+        final List<String> songPaths = new ArrayList<>();
         final List<Tuple> albumQueryInput = new ArrayList<>();
         final List<Tuple> songQueryInput = new ArrayList<>();
-        final List<Tuple> genreQueryInput = new ArrayList<>();
-        final List<Tuple> artistsQueryInput = new ArrayList<>();
         final List<Tuple> albumArtistsQueryInput = new ArrayList<>();
+        final List<Tuple> songSearchInput = new ArrayList<>();
+        final List<Tuple> albumArtistSearchInput = new ArrayList<>();
         for (final AlbumData album : albums) {
-            final int id = album.generateKey();
+            final int id = keys.albums().get(albumKey(album));
+            albumIds.add(id);
             albumQueryInput.add(Tuple.of(id, album.name(), album.date(), album.atime(), album.mtime(), album.totalDuration()));
 
             if (Strings.isNotBlank(album.artist())) {
-                albumArtistsQueryInput.add(Tuple.of(album.artist().hashCode(), album.artist(), id));
+                final int artistId = keys.artists().get(album.artist());
+                albumArtistsQueryInput.add(Tuple.of(artistId, album.artist(), id));
+                albumArtistSearchInput.add(Tuple.of(artistId, album.artist()));
             }
 
             for (final SongData song : album.songs()) {
+                songPaths.add(song.path());
                 songQueryInput.add(Tuple.of(song.title(),
                                             song.artist(),
                                             id,
@@ -239,65 +658,146 @@ class DatabaseServiceImpl implements DatabaseService {
                                             song.trackNum(),
                                             song.duration(),
                                             song.mtime(),
-                                            song.atime()));
+                                            song.atime(),
+                                            song.size()));
+                songSearchInput.add(Tuple.of(album.name(), album.artist(), song.path()));
+            }
+        }
+        // albums the upserted songs are moved out of need their aggregates refreshed as well
+        return albumsOfPaths(connection, songPaths, shadow)
+                .compose(previousAlbumIds -> Future.all(connection.preparedQuery(DatabaseAction.INSERT_ALBUM.query(shadow))
+                                                                  .executeBatch(albumQueryInput),
+                                                        connection.preparedQuery(DatabaseAction.INSERT_SONG.query(shadow))
+                                                                  .executeBatch(songQueryInput),
+                                                        connection.preparedQuery(DatabaseAction.INSERT_ALBUM_ARTIST.query(shadow))
+                                                                  .executeBatch(albumArtistsQueryInput))
+                                                   // index rows are keyed by song rowid, write them once songs are in place
+                                                   .compose(__ -> Future.all(
+                                                           connection.preparedQuery(DatabaseAction.INSERT_SONG_SEARCH.query(shadow))
+                                                                     .executeBatch(songSearchInput),
+                                                           connection.preparedQuery(DatabaseAction.INSERT_ALBUM_ARTIST_SEARCH.query(shadow))
+                                                                     .executeBatch(albumArtistSearchInput)))
+                                                   .compose(__ -> {
+                                                       final Set<Integer> touched = new LinkedHashSet<>(albumIds);
+                                                       touched.addAll(previousAlbumIds);
+                                                       return syncAlbums(connection, touched, shadow);
+                                                   }))
+                .map(__ -> albumIds);
+    }
 
-                if (Strings.isNotBlank(song.genre())) {
-                    genreQueryInput.add(Tuple.of(song.genre().hashCode(), song.genre(), id));
-                }
+    /**
+     * @return ids of the albums the songs currently belong to
+     */
+    private static Future<List<Integer>> albumsOfPaths(final SqlConnection connection,
+                                                       final Collection<String> paths,
+                                                       final boolean shadow) {
+        return connection.preparedQuery(DatabaseAction.GET_ALBUMS_OF_PATHS.query(shadow))
+                         .execute(Tuple.of(jsonArray(paths)))
+                         .map(rows -> {
+                             final List<Integer> ids = new ArrayList<>(rows.size());
+                             for (Row row : rows) {
+                                 ids.add(row.getInteger("album"));
+                             }
+                             return ids;
+                         });
+    }
 
-                if (Strings.isNotBlank(song.artist())) {
-                    artistsQueryInput.add(Tuple.of(song.artist().hashCode(), song.artist(), id));
-                }
-            }
+    /**
+     * Bring albums whose songs were written or removed back in line with their songs. Genres and artists are derived
+     * from songs, they are rebuilt so tags changed or songs moved away are no longer listed, empty albums are dropped.
+     */
+    private static Future<Void> syncAlbums(final SqlConnection connection, final Collection<Integer> albumIds, final boolean shadow) {
+        final Tuple params = Tuple.of(jsonArray(albumIds));
+        return connection.preparedQuery(DatabaseAction.DELETE_GENRES_OF_ALBUMS.query(shadow))
+                         .execute(params)
+                         .compose(__ -> connection.preparedQuery(DatabaseAction.DELETE_ARTISTS_OF_ALBUMS.query(shadow))
+                                                  .execute(params))
+                         .compose(__ -> connection.preparedQuery(DatabaseAction.INSERT_GENRES_OF_ALBUMS.query(shadow))
+                                                  .execute(params))
+                         .compose(__ -> connection.preparedQuery(DatabaseAction.INSERT_ARTISTS_OF_ALBUMS.query(shadow))
+                                                  .execute(params))
+                         .compose(__ -> connection.preparedQuery(DatabaseAction.REFRESH_ALBUMS.query(shadow))
+                                                  .execute(params))
+                         .compose(__ -> connection.query(DatabaseAction.CLEANUP_ALBUMS.query(shadow))
+                                                  .execute())
+                         // album artists go with their last album
+                         .compose(__ -> connection.query(DatabaseAction.CLEANUP_ALBUM_ARTISTS_SEARCH.query(shadow))
+                                                  .execute())
+                         .mapEmpty();
+    }
+
+    /**
+     * @return natural key of an album, album without artist is keyed by an empty artist
+     */
+    private static List<String> albumKey(final AlbumData album) {
+        return List.of(album.name(), Objects.requireNonNullElse(album.artist(), ""));
+    }
+
+    private static Map<String, Integer> nameIds(final RowSet<Row> rows) {
+        final Map<String, Integer> ids = new HashMap<>();
+        for (Row row : rows) {
+            ids.put(row.getString("name"), row.getInteger("id"));
         }
-        return pool.getConnection()
-                   .compose(connection ->
-                                    connection.begin()
-                                              .compose(transaction ->
-                                                               Future.all(connection.preparedQuery(DatabaseAction.INSERT_ALBUM.query())
-                                                                                    .executeBatch(albumQueryInput),
-                                                                          connection.preparedQuery(DatabaseAction.INSERT_SONG.query())
-                                                                                    .executeBatch(songQueryInput),
-                                                                          connection.preparedQuery(DatabaseAction.INSERT_GENRE.query())
-                                                                                    .executeBatch(genreQueryInput),
-                                                                          connection.preparedQuery(DatabaseAction.INSERT_ARTIST.query())
-                                                                                    .executeBatch(artistsQueryInput),
-                                                                          connection.preparedQuery(DatabaseAction.INSERT_ALBUM_ARTIST.query())
-                                                                                    .executeBatch(albumArtistsQueryInput))
-                                                                     .compose(__ -> transaction.commit()))
-                                              .eventually((Supplier<Future<Void>>) connection::close));
+        return ids;
+    }
+
+    private static Future<Void> executeBatch(final SqlConnection connection, final String query, final List<Tuple> batch) {
+        if (batch.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        return connection.preparedQuery(query).executeBatch(batch).mapEmpty();
     }
 
     @Override
     public Future<List<JsonObject>> songsFromPath(final Collection<String> paths) {
-        final String placeholders = paths.stream().map(__ -> "?").collect(Collectors.joining(","));
-        final String query = DatabaseAction.GET_SONGS_DATA_FROM_PATHS.query().replace("?", placeholders);
-        final Tuple params = Tuple.tuple();
-        paths.forEach(params::addString);
-        return pool.preparedQuery(query)
-                   .execute(params)
-                   .map(rows -> {
-                       final List<JsonObject> songs = new ArrayList<>();
-                       for (Row row : rows) {
-                           songs.add(row.toJson());
-                       }
-                       return songs;
-                   });
+        return readPool.preparedQuery(DatabaseAction.GET_SONGS_DATA_FROM_PATHS.query())
+                       .execute(Tuple.of(jsonArray(paths)))
+                       .map(rows -> {
+                           final List<JsonObject> songs = new ArrayList<>();
+                           for (Row row : rows) {
+                               songs.add(row.toJson());
+                           }
+                           return songs;
+                       });
     }
 
-    @Override
-    public Future<JsonObject> stats() {
-        return pool.query(DatabaseAction.GET_STATS.query())
-                   .execute()
-                   .map(rows -> rows.iterator().next().toJson());
+    private Future<JsonObject> queryStats() {
+        return readPool.query(DatabaseAction.GET_STATS.query())
+                       .execute()
+                       .map(rows -> rows.iterator().next().toJson());
     }
 
     @Override
     public Future<JsonObject> search(final String keyword) {
-        final String querySearchString = "%" + keyword + "%";
-        return Future.all(searchAlbums(querySearchString),
-                          searchArtists(querySearchString),
-                          searchSongs(querySearchString))
+        if (isUnsegmented(keyword) && keyword.trim().codePoints().count() >= TRIGRAM_LENGTH) {
+            final String phrase = trigramQuery(keyword);
+            return cached("searchTrigram", List.of(phrase), () -> querySearch(
+                    searchAlbums(DatabaseAction.SEARCH_ALBUMS_BY_TRIGRAM, Tuple.of(phrase, phrase)),
+                    searchArtists(DatabaseAction.SEARCH_ARTISTS_BY_TRIGRAM, Tuple.of(phrase)),
+                    searchSongs(DatabaseAction.SEARCH_SONGS_BY_TRIGRAM, Tuple.of(phrase))));
+        }
+        if (isUnsegmented(keyword)) {
+            // the trigram index cannot look up keywords shorter than a trigram, they scan the library
+            final String pattern = likePattern(keyword);
+            return cached("searchSubstring", List.of(pattern), () -> querySearch(
+                    searchAlbums(DatabaseAction.SEARCH_ALBUMS_BY_SUBSTRING, Tuple.of(pattern, pattern)),
+                    searchArtists(DatabaseAction.SEARCH_ARTISTS_BY_SUBSTRING, Tuple.of(pattern)),
+                    searchSongs(DatabaseAction.SEARCH_SONGS_BY_SUBSTRING, Tuple.of(pattern, pattern, pattern))));
+        }
+        final String querySearchString = matchQuery(keyword);
+        if (querySearchString.isEmpty()) {
+            return Future.succeededFuture(JsonObject.of("albums", List.of(), "artists", List.of(), "songs", List.of()));
+        }
+        final Tuple params = Tuple.of(querySearchString);
+        return cached("search", List.of(querySearchString), () -> querySearch(searchAlbums(DatabaseAction.SEARCH_ALBUMS, params),
+                                                                              searchArtists(DatabaseAction.SEARCH_ARTISTS, params),
+                                                                              searchSongs(DatabaseAction.SEARCH_SONGS, params)));
+    }
+
+    private static Future<JsonObject> querySearch(final Future<JsonObject> albums,
+                                                  final Future<JsonObject> artists,
+                                                  final Future<JsonObject> songs) {
+        return Future.all(albums, artists, songs)
                      .map(compositeFuture -> {
                          final JsonObject response = new JsonObject();
                          compositeFuture.<JsonObject>list().forEach(response::mergeIn);
@@ -317,81 +817,434 @@ class DatabaseServiceImpl implements DatabaseService {
 
     @Override
     public Future<List<String>> songPaths() {
-        return pool.query("SELECT songs.path from songs")
-                   .execute()
-                   .map(rows -> {
-                       final List<String> songPaths = new ArrayList<>(rows.size());
-                       for (Row row : rows) {
-                           songPaths.add(row.getString("path"));
-                       }
-                       return songPaths;
-                   });
+        return readPool.query("SELECT songs.path from songs")
+                       .execute()
+                       .map(rows -> {
+                           final List<String> songPaths = new ArrayList<>(rows.size());
+                           for (Row row : rows) {
+                               songPaths.add(row.getString("path"));
+                           }
+                           return songPaths;
+                       });
+    }
+
+    @Override
+    public Future<Map<Integer, Integer>> albumIdChanges() {
+        return writePool.query(DatabaseAction.GET_ALBUM_ID_CHANGES.query())
+                        .execute()
+                        .map(rows -> {
+                            final Map<Integer, Integer> changes = new HashMap<>();
+                            for (Row row : rows) {
+                                changes.put(row.getInteger("old_id"), row.getInteger("new_id"));
+                            }
+                            return changes;
+                        });
+    }
+
+    @Override
+    public Future<Void> clearAlbumIdChanges() {
+        return writePool.query(DatabaseAction.CLEAR_ALBUM_ID_CHANGES.query())
+                        .execute()
+                        .mapEmpty();
+    }
+
+    @Override
+    public Future<List<Integer>> albumIds() {
+        return readPool.query(DatabaseAction.GET_ALBUM_IDS.query())
+                       .execute()
+                       .map(rows -> {
+                           final List<Integer> ids = new ArrayList<>(rows.size());
+                           for (Row row : rows) {
+                               ids.add(row.getInteger("id"));
+                           }
+                           return ids;
+                       });
+    }
+
+    @Override
+    public Future<List<JsonObject>> songFileStats() {
+        return readPool.query(DatabaseAction.GET_SONG_FILE_STATS.query())
+                       .execute()
+                       .map(DatabaseServiceImpl::fileStats);
+    }
+
+    @Override
+    public Future<List<JsonObject>> songFileStats(final Collection<String> paths) {
+        if (paths.isEmpty()) {
+            return Future.succeededFuture(List.of());
+        }
+        // paths under a directory sort between "<directory>/" and "<directory>0", '0' follows '/'
+        final char separator = File.separatorChar;
+        return readPool.preparedQuery(DatabaseAction.GET_SONG_FILE_STATS_UNDER_PATHS.query())
+                       .execute(Tuple.of(jsonArray(paths), String.valueOf(separator), String.valueOf((char) (separator + 1))))
+                       .map(DatabaseServiceImpl::fileStats);
+    }
+
+    private static List<JsonObject> fileStats(final RowSet<Row> rows) {
+        final List<JsonObject> songFiles = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            songFiles.add(row.toJson());
+        }
+        return songFiles;
     }
 
     @Override
     public Future<Void> removeSongs(final List<String> paths) {
-        final String placeholders = paths.stream().map(__ -> "?").collect(Collectors.joining(","));
-        final String query = DatabaseAction.DELETE_SONGS_WITH_PATHS.query().replace("?", placeholders);
-        final Tuple params = Tuple.tuple();
-        paths.forEach(params::addString);
-        return pool.preparedQuery(query)
-                   .execute(params)
-                   .flatMap(__ -> pool.query(DatabaseAction.CLEANUP_ALBUMS.query()).execute())
-                   .flatMap(__ -> Future.succeededFuture());
+        return deleteSongs(paths, false).onComplete(__ -> invalidateResults());
+    }
+
+    private Future<Void> deleteSongs(final List<String> paths, final boolean shadow) {
+        final Tuple params = Tuple.of(jsonArray(paths));
+        return writePool.getConnection()
+                        .compose(connection -> connection.begin()
+                                                         .compose(transaction -> albumsOfPaths(connection, paths, shadow)
+                                                                 // index rows are found through the songs, remove them before the songs are gone
+                                                                 .compose(albumIds -> connection
+                                                                         .preparedQuery(DatabaseAction.DELETE_SONGS_SEARCH_WITH_PATHS.query(shadow))
+                                                                         .execute(params)
+                                                                         .compose(__ -> connection
+                                                                                 .preparedQuery(DatabaseAction.DELETE_SONGS_WITH_PATHS.query(shadow))
+                                                                                 .execute(params))
+                                                                         .compose(__ -> syncAlbums(connection, albumIds, shadow)))
+                                                                 .compose(__ -> transaction.commit()))
+                                                         .eventually((Supplier<Future<Void>>) connection::close));
     }
 
     @Override
     public Future<Void> clearDatabase() {
-        return pool.getConnection()
-                   .compose(connection -> connection.begin()
-                                                    .compose(transaction -> Future.all(
-                                                            connection.query(DatabaseAction.CLEAR_ALBUM_ARTISTS.query()).execute(),
-                                                            connection.query(DatabaseAction.CLEAR_ARTISTS.query()).execute(),
-                                                            connection.query(DatabaseAction.CLEAR_GENRES.query()).execute(),
-                                                            connection.query(DatabaseAction.CLEAR_SONGS.query()).execute(),
-                                                            connection.query(DatabaseAction.CLEAR_ALBUMS.query()).execute()
-                                                    ).compose(__ -> transaction.commit()))
-                                                    .eventually((Supplier<Future<Void>>) connection::close));
+        return writePool.getConnection()
+                        .compose(connection -> connection.begin()
+                                                         .compose(transaction -> Future.all(
+                                                                 connection.query(DatabaseAction.CLEAR_ALBUM_ARTISTS.query()).execute(),
+                                                                 connection.query(DatabaseAction.CLEAR_ARTISTS.query()).execute(),
+                                                                 connection.query(DatabaseAction.CLEAR_GENRES.query()).execute(),
+                                                                 connection.query(DatabaseAction.CLEAR_SONGS.query()).execute(),
+                                                                 connection.query(DatabaseAction.CLEAR_ALBUMS.query()).execute(),
+                                                                 connection.query(DatabaseAction.CLEAR_SONGS_SEARCH.query()).execute(),
+                                                                 connection.query(DatabaseAction.CLEAR_ALBUM_ARTISTS_SEARCH.query()).execute()
+                                                         ).compose(__ -> transaction.commit()))
+                                                         .eventually((Supplier<Future<Void>>) connection::close))
+                        .onComplete(__ -> invalidateResults());
     }
 
     @Override
     public Future<Void> close() {
-        return pool.close();
-    }
-
-    private Future<JsonObject> searchAlbums(final String keyword) {
-        return pool.preparedQuery(DatabaseAction.SEARCH_ALBUMS.query())
-                   .execute(Tuple.of(keyword))
-                   .map(rows -> {
-                       final List<JsonObject> albums = new ArrayList<>();
-                       for (Row row : rows) {
-                           albums.add(row.toJson());
-                       }
-                       return JsonObject.of("albums", albums);
-                   });
-    }
-
-    private Future<JsonObject> searchSongs(final String keyword) {
-        return pool.preparedQuery(DatabaseAction.SEARCH_SONGS.query())
-                   .execute(Tuple.of(keyword, keyword))
-                   .map(rows -> {
-                       final List<JsonObject> songs = new ArrayList<>();
-                       for (Row row : rows) {
-                           songs.add(row.toJson());
-                       }
-                       return JsonObject.of("songs", songs);
-                   });
-    }
-
-    private Future<JsonObject> searchArtists(final String keyword) {
-        return pool.preparedQuery(DatabaseAction.SEARCH_ARTISTS.query())
-                   .execute(Tuple.of(keyword))
-                   .map(rows -> {
-                       final List<JsonObject> artists = new ArrayList<>();
-                       for (Row row : rows) {
-                           artists.add(row.toJson());
-                       }
-                       return JsonObject.of("artists", artists);
-                   });
+        if (readPool == writePool) {
+            return writePool.close();
+        }
+        return Future.all(readPool.close(), writePool.close()).mapEmpty();
+    }
+
+    /**
+     * Bind a whole collection as one parameter, queries expand it with {@code json_each(?)}.
+     * Keeps the SQL text fixed however many values there are, so the statement stays cached
+     * and large sets never reach the SQLite bound parameter limit.
+     */
+    private static String jsonArray(final Collection<?> values) {
+        return new JsonArray(new ArrayList<>(values)).encode();
+    }
+
+    /**
+     * Serve a read query from the result cache. Entries are keyed by the result generation, so results loaded
+     * before a library change are never returned after it, and failures are not cached.
+     *
+     * @param method    name of the read method
+     * @param arguments arguments of the read method
+     * @param query     query loading the result
+     * @return cached result
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Future<T> cached(final String method, final List<?> arguments, final Supplier<Future<T>> query) {
+        final ResultKey key = new ResultKey(resultGeneration.get(), method, arguments);
+        final Future<T> result = (Future<T>) resultCache.get(key, __ -> query.get());
+        return result.onFailure(__ -> resultCache.asMap().remove(key, result));
+    }
+
+    /**
+     * Drop cached results after the library is written or a {@code DATABASE_UPDATE} is received.
+     */
+    private void invalidateResults() {
+        resultGeneration.incrementAndGet();
+        resultCache.invalidateAll();
+    }
+
+    private static Future<Void> executeInOrder(final SqlConnection connection, final List<String> queries) {
+        Future<Void> future = Future.succeededFuture();
+        for (String query : queries) {
+            future = future.compose(__ -> connection.query(query).execute().mapEmpty());
+        }
+        return future;
+    }
+
+    /**
+     * Build full text query from user input, every word is quoted so FTS5 syntax characters are matched literally,
+     * and matched as prefix so results show up while typing.
+     *
+     * @param keyword user input
+     * @return FTS5 query, empty if there is no word to search
+     */
+    static String matchQuery(final String keyword) {
+        return Arrays.stream(keyword.trim().split("\\s+"))
+                     .filter(Strings::isNotBlank)
+                     .map(word -> "\"" + word.replace("\"", "\"\"") + "\"*")
+                     .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * The full text index splits words on spaces and punctuation, text of scripts written without spaces, such as
+     * Chinese, Japanese or Thai, is indexed as whole runs that only match from their start.
+     *
+     * @param keyword user input
+     * @return whether the keyword has characters of a script written without spaces, searched by substring instead
+     */
+    static boolean isUnsegmented(final String keyword) {
+        return keyword.codePoints().anyMatch(codePoint -> switch (Character.UnicodeScript.of(codePoint)) {
+            case HAN, HIRAGANA, KATAKANA, THAI, LAO, KHMER, MYANMAR, TIBETAN -> true;
+            default -> false;
+        });
+    }
+
+    /**
+     * @param keyword user input
+     * @return FTS5 phrase matching the trimmed keyword anywhere in the trigram index
+     */
+    static String trigramQuery(final String keyword) {
+        return "\"" + keyword.trim().replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * @param keyword user input
+     * @return {@code LIKE} pattern matching the trimmed keyword anywhere, with {@code \} as escape character
+     */
+    static String likePattern(final String keyword) {
+        return "%" + keyword.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /**
+     * Bring the schema to the latest version by running migrations newer than the recorded version in order,
+     * each applied migration is recorded so it never runs again.
+     */
+    private Future<Void> migrate(final SqlConnection connection) {
+        return connection.query(DatabaseAction.CREATE_SCHEMA_VERSION_TABLE.query())
+                         .execute()
+                         .compose(__ -> connection.query(DatabaseAction.GET_SCHEMA_VERSION.query()).execute())
+                         .compose(rows -> {
+                             final int version = rows.iterator().next().getInteger("version");
+                             Future<Void> future = Future.succeededFuture();
+                             for (Migration migration : migrations) {
+                                 if (migration.version() <= version) {
+                                     continue;
+                                 }
+                                 future = future.compose(__ -> migration.script().apply(connection))
+                                                .compose(__ -> connection.preparedQuery(DatabaseAction.INSERT_SCHEMA_VERSION.query())
+                                                                         .execute(Tuple.of(migration.version(), System.currentTimeMillis())))
+                                                .onSuccess(__ -> LOGGER.info("Migrated database schema to version {}.", migration.version()))
+                                                .mapEmpty();
+                             }
+                             return future;
+                         });
+    }
+
+    /**
+     * Indexes for looking up rows of an album, used by album queries and by the cascade when albums are removed.
+     */
+    private Future<Void> createAlbumIndexes(final SqlConnection connection) {
+        return executeInOrder(connection, List.of(DatabaseAction.CREATE_SONGS_ALBUM_INDEX.query(),
+                                                  DatabaseAction.CREATE_ALBUM_ARTISTS_ALBUM_INDEX.query(),
+                                                  DatabaseAction.CREATE_ARTISTS_ALBUM_INDEX.query(),
+                                                  DatabaseAction.CREATE_GENRES_ALBUM_INDEX.query()));
+    }
+
+    /**
+     * Summary of the library kept up to date by triggers within the transactions writing the library,
+     * so stats are read from a single row.
+     */
+    private Future<Void> createLibraryStats(final SqlConnection connection) {
+        return connection.query(DatabaseAction.CREATE_LIBRARY_STATS_TABLE.query())
+                         .execute()
+                         .compose(__ -> executeInOrder(connection, libraryStatsQueries()));
+    }
+
+    /**
+     * Count the library once and attach the triggers maintaining the counts, triggers are dropped with the live
+     * tables when a Build is committed. Shadow tables have no triggers, the counts are taken after the swap.
+     */
+    private static List<String> libraryStatsQueries() {
+        return List.of(DatabaseAction.REFRESH_LIBRARY_STATS.query(),
+                       DatabaseAction.CREATE_ALBUM_INSERT_STATS_TRIGGER.query(),
+                       DatabaseAction.CREATE_ALBUM_DELETE_STATS_TRIGGER.query(),
+                       DatabaseAction.CREATE_SONG_INSERT_STATS_TRIGGER.query(),
+                       DatabaseAction.CREATE_SONG_UPDATE_STATS_TRIGGER.query(),
+                       DatabaseAction.CREATE_SONG_DELETE_STATS_TRIGGER.query(),
+                       DatabaseAction.CREATE_ARTIST_INSERT_STATS_TRIGGER.query(),
+                       DatabaseAction.CREATE_ARTIST_DELETE_STATS_TRIGGER.query());
+    }
+
+    /**
+     * Substring index for text of scripts written without spaces. The trigram tables read their text from the library
+     * tables and are kept up to date by triggers, so writes need no extra queries.
+     */
+    private Future<Void> createTrigramIndex(final SqlConnection connection) {
+        return executeInOrder(connection, List.of(DatabaseAction.CREATE_SONGS_TRIGRAM_TABLE.query(),
+                                                  DatabaseAction.CREATE_ALBUMS_TRIGRAM_TABLE.query(),
+                                                  DatabaseAction.CREATE_ALBUM_ARTISTS_TRIGRAM_TABLE.query()))
+                .compose(__ -> executeInOrder(connection, trigramIndexQueries()));
+    }
+
+    /**
+     * Index the library once and attach the triggers maintaining the trigram index, triggers are dropped with the
+     * live tables when a Build is committed. Shadow tables have no triggers, the index is rebuilt after the swap.
+     */
+    private static List<String> trigramIndexQueries() {
+        return List.of(DatabaseAction.REBUILD_SONGS_TRIGRAM.query(),
+                       DatabaseAction.REBUILD_ALBUMS_TRIGRAM.query(),
+                       DatabaseAction.REBUILD_ALBUM_ARTISTS_TRIGRAM.query(),
+                       DatabaseAction.CREATE_SONG_INSERT_TRIGRAM_TRIGGER.query(),
+                       DatabaseAction.CREATE_SONG_UPDATE_TRIGRAM_TRIGGER.query(),
+                       DatabaseAction.CREATE_SONG_DELETE_TRIGRAM_TRIGGER.query(),
+                       DatabaseAction.CREATE_ALBUM_INSERT_TRIGRAM_TRIGGER.query(),
+                       DatabaseAction.CREATE_ALBUM_DELETE_TRIGRAM_TRIGGER.query(),
+                       DatabaseAction.CREATE_ALBUM_ARTIST_INSERT_TRIGRAM_TRIGGER.query(),
+                       DatabaseAction.CREATE_ALBUM_ARTIST_DELETE_TRIGRAM_TRIGGER.query());
+    }
+
+    /**
+     * Create and fill the full text index for databases created before search moved to FTS5.
+     */
+    private Future<Void> createSearchIndex(final SqlConnection connection) {
+        return connection.query(DatabaseAction.HAS_SEARCH_TABLES.query())
+                         .execute()
+                         .compose(rows -> {
+                             if (rows.iterator().next().getInteger("count") > 0) {
+                                 return Future.succeededFuture();
+                             }
+                             return executeInOrder(connection, List.of(
+                                     DatabaseAction.CREATE_SONGS_SEARCH_TABLE.query(),
+                                     DatabaseAction.CREATE_ALBUM_ARTISTS_SEARCH_TABLE.query(),
+                                     DatabaseAction.POPULATE_SONGS_SEARCH.query(),
+                                     DatabaseAction.POPULATE_ALBUM_ARTISTS_SEARCH.query()));
+                         });
+    }
+
+    /**
+     * Create tables allocating album, artist and genre ids. Databases created before hold sparse hash code ids,
+     * which would make new ids continue after the largest one and overflow, so the library is copied into the shadow
+     * tables under dense ids and swapped in, the same way a Build is committed. Old album ids are kept in
+     * {@code album_id_changes} until the collector moved the covers named after them. An unfinished Build is dropped,
+     * it holds the old ids and the next Build starts over.
+     */
+    private Future<Void> createKeyTables(final SqlConnection connection) {
+        return connection.query(DatabaseAction.HAS_KEY_TABLES.query())
+                         .execute()
+                         .compose(rows -> {
+                             if (rows.iterator().next().getInteger("count") > 0) {
+                                 return connection.query(DatabaseAction.CREATE_ALBUM_ID_CHANGES_TABLE.query()).execute().mapEmpty();
+                             }
+                             final List<String> queries = new ArrayList<>(createShadowQueries());
+                             queries.addAll(List.of(DatabaseAction.CREATE_ALBUM_ID_CHANGES_TABLE.query(),
+                                                    DatabaseAction.CREATE_RENUMBERED_ARTISTS_TABLE.query(),
+                                                    DatabaseAction.CREATE_RENUMBERED_GENRES_TABLE.query(),
+                                                    DatabaseAction.MAP_ALBUM_IDS.query(),
+                                                    DatabaseAction.MAP_ARTIST_IDS.query(),
+                                                    DatabaseAction.MAP_GENRE_IDS.query(),
+                                                    DatabaseAction.RENUMBER_ALBUMS.query(true),
+                                                    DatabaseAction.RENUMBER_SONGS.query(true),
+                                                    DatabaseAction.RENUMBER_GENRES.query(true),
+                                                    DatabaseAction.RENUMBER_ARTISTS.query(true),
+                                                    DatabaseAction.RENUMBER_ALBUM_ARTISTS.query(true),
+                                                    DatabaseAction.POPULATE_SONGS_SEARCH.query(true),
+                                                    DatabaseAction.POPULATE_ALBUM_ARTISTS_SEARCH.query(true)));
+                             queries.addAll(swapShadowQueries());
+                             queries.addAll(List.of(DatabaseAction.DROP_RENUMBERED_ARTISTS_TABLE.query(),
+                                                    DatabaseAction.DROP_RENUMBERED_GENRES_TABLE.query(),
+                                                    DatabaseAction.CREATE_ALBUM_KEYS_TABLE.query(),
+                                                    DatabaseAction.CREATE_ARTIST_KEYS_TABLE.query(),
+                                                    DatabaseAction.CREATE_GENRE_KEYS_TABLE.query(),
+                                                    DatabaseAction.SEED_ALBUM_KEYS.query(),
+                                                    DatabaseAction.SEED_ARTIST_KEYS.query(),
+                                                    DatabaseAction.SEED_GENRE_KEYS.query()));
+                             return executeInOrder(connection, queries);
+                         });
+    }
+
+    private Future<Void> addSongsSizeColumn(final SqlConnection connection) {
+        return connection.query(DatabaseAction.HAS_SONGS_SIZE_COLUMN.query())
+                         .execute()
+                         .compose(rows -> {
+                             if (rows.iterator().next().getInteger("count") > 0) {
+                                 return Future.succeededFuture();
+                             }
+                             return connection.query(DatabaseAction.ADD_SONGS_SIZE_COLUMN.query())
+                                              .execute()
+                                              .mapEmpty();
+                         });
+    }
+
+    private Future<JsonObject> searchAlbums(final DatabaseAction action, final Tuple params) {
+        return readPool.preparedQuery(action.query())
+                       .execute(params)
+                       .map(rows -> {
+                           final List<JsonObject> albums = new ArrayList<>();
+                           for (Row row : rows) {
+                               albums.add(row.toJson());
+                           }
+                           return JsonObject.of("albums", albums);
+                       });
+    }
+
+    private Future<JsonObject> searchSongs(final DatabaseAction action, final Tuple params) {
+        return readPool.preparedQuery(action.query())
+                       .execute(params)
+                       .map(rows -> {
+                           final List<JsonObject> songs = new ArrayList<>();
+                           for (Row row : rows) {
+                               songs.add(row.toJson());
+                           }
+                           return JsonObject.of("songs", songs);
+                       });
+    }
+
+    private Future<JsonObject> searchArtists(final DatabaseAction action, final Tuple params) {
+        return readPool.preparedQuery(action.query())
+                       .execute(params)
+                       .map(rows -> {
+                           final List<JsonObject> artists = new ArrayList<>();
+                           for (Row row : rows) {
+                               artists.add(row.toJson());
+                           }
+                           return JsonObject.of("artists", artists);
+                       });
+    }
+
+    /**
+     * @param generation number of refreshes requested so far
+     * @param catalog    snapshot of the generation, null while it is loading
+     */
+    private record CatalogState(long generation, Catalog catalog) {
+    }
+
+    private record ResultKey(long generation, String method, List<?> arguments) {
+    }
+
+    /**
+     * Schema change applied once per database.
+     * Migrations up to version 3 predate schema_version, so they check whether they are already applied.
+     *
+     * @param version schema version after the migration, in increasing order
+     * @param script  schema change
+     */
+    private record Migration(int version, Function<SqlConnection, Future<Void>> script) {
+    }
+
+    /**
+     * Ids resolved for a batch of albums.
+     *
+     * @param albums  album id by album name and artist
+     * @param artists artist id by name
+     * @param genres  genre id by name
+     */
+    private record LibraryKeys(Map<List<String>, Integer> albums,
+                               Map<String, Integer> artists,
+                               Map<String, Integer> genres) {
     }
 }
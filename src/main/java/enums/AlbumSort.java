@@ -0,0 +1,6 @@
+package enums;
+
+public enum AlbumSort {
+    NAME,
+    ADD_TIME
+}
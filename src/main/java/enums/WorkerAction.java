@@ -4,5 +4,8 @@ public enum WorkerAction {
     UPDATE_DIRECTORY,
     SCAN_DIRECTORY,
     DATABASE_UPDATE,
-    PLAYER_SONG_UPDATE
+    CATALOG_UPDATE,
+    SCAN_PROGRESS,
+    PLAYER_SONG_UPDATE,
+    PLAYBACK_STATE_UPDATE
 }
@@ -1,7 +1,6 @@
 package models;
 
 import java.util.List;
-import java.util.Objects;
 
 public final class AlbumData {
     private final String name;
@@ -48,10 +47,6 @@ public final class AlbumData {
         }
     }
 
-    public int generateKey() {
-        return Objects.hash(name, artist);
-    }
-
     public String name() {
         return name;
     }
@@ -15,7 +15,8 @@ public record SongData(String path, //absolute file path
                        int trackNum,
                        int duration,
                        long mtime, //last modified time
-                       long atime //song add time
+                       long atime, //song add time
+                       long size //file size in bytes
 ) {
     public SongData {
         Objects.requireNonNull(path, "path is null");
@@ -49,6 +50,7 @@ public record SongData(String path, //absolute file path
         private int duration;
         private long mtime;
         private long atime;
+        private long size;
 
         private Builder() {
         }
@@ -123,6 +125,11 @@ public record SongData(String path, //absolute file path
             return this;
         }
 
+        public Builder size(final long size) {
+            this.size = size;
+            return this;
+        }
+
         public SongData build() {
             return new SongData(path,
                                 artist,
@@ -137,7 +144,8 @@ public record SongData(String path, //absolute file path
                                 trackNum,
                                 duration,
                                 mtime,
-                                atime);
+                                atime,
+                                size);
         }
     }
 }
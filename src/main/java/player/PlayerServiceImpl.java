@@ -21,6 +21,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static enums.WorkerAction.PLAYBACK_STATE_UPDATE;
 import static enums.WorkerAction.PLAYER_SONG_UPDATE;
 
 public class PlayerServiceImpl implements PlayerService {
@@ -201,6 +202,7 @@ public class PlayerServiceImpl implements PlayerService {
                 "playing", playbackStatus.isPlaying(),
                 "elapsed", playbackStatus.elapsed(),
                 "loopId", stat.repeatMode().ordinal(),
+                "position", stat.currentIndex(),
                 "song", currentTrack.get()
         ));
     }
@@ -213,6 +215,9 @@ public class PlayerServiceImpl implements PlayerService {
 
     private void updateCurrentSong() {
         eventBus.publish(PLAYER_SONG_UPDATE.name(), true);
+        // built once and published to every subscriber, so clients do not query the status after each change
+        playbackStatus().onSuccess(status -> eventBus.publish(PLAYBACK_STATE_UPDATE.name(), status))
+                        .onFailure(e -> LOGGER.error("Failed to publish playback state.", e));
     }
 
     private record PlayState(List<JsonObject> playlist,
@@ -3,6 +3,7 @@ package playlists;
 import database.DatabaseService;
 import io.vertx.core.Future;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.FileProps;
 import io.vertx.core.file.FileSystem;
 import io.vertx.core.json.JsonObject;
 import org.apache.logging.log4j.LogManager;
@@ -18,6 +19,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static config.ServerConfig.PLAYLIST_PATH;
@@ -90,57 +92,54 @@ public class PlaylistServiceImpl implements PlaylistService {
     @Override
     public Future<List<JsonObject>> listPlaylists() {
         return fileSystem.readDir(playlistPath, M3U_MATCH_REGEX)
-                         .compose(paths -> {
-                             final var futures =
-                                     paths.stream()
-                                          .map(this::playlistDetail)
-                                          .toList();
-
-                             return Future.all(futures)
-                                          .map(compositeFuture -> compositeFuture.<JsonObject>list()
-                                                                                 .stream()
-                                                                                 .filter(Objects::nonNull)
-                                                                                 .toList());
+                         .compose(paths -> Future.all(paths.stream()
+                                                           .map(this::readPlaylist)
+                                                           .toList()))
+                         .compose(compositeFuture -> {
+                             final List<PlaylistFile> playlists = compositeFuture.list();
+                             // cover of a playlist is the album of its first song, look them up in a single query
+                             final Set<String> coverSongPaths = playlists.stream()
+                                                                         .map(PlaylistFile::firstSongPath)
+                                                                         .filter(Objects::nonNull)
+                                                                         .collect(Collectors.toSet());
+                             final Future<List<JsonObject>> coverSongs = coverSongPaths.isEmpty()
+                                                                         ? Future.succeededFuture(List.of())
+                                                                         : databaseService.songsFromPath(coverSongPaths);
+                             return coverSongs.map(songs -> {
+                                 final Map<String, Integer> coverIds = new HashMap<>();
+                                 for (JsonObject song : songs) {
+                                     coverIds.put(song.getString("path"), song.getInteger("albumId"));
+                                 }
+                                 final List<JsonObject> result = new ArrayList<>(playlists.size());
+                                 for (PlaylistFile playlist : playlists) {
+                                     if (playlist.firstSongPath() == null) {
+                                         result.add(playlist.payload());
+                                     } else if (coverIds.containsKey(playlist.firstSongPath())) {
+                                         result.add(playlist.payload().put("coverId", coverIds.get(playlist.firstSongPath())));
+                                     }
+                                 }
+                                 return result;
+                             });
                          });
     }
 
-    private Future<JsonObject> playlistDetail(final String path) {
+    private Future<PlaylistFile> readPlaylist(final String path) {
         final String fileName = Path.of(path).getFileName().toString();
         final int dot = fileName.lastIndexOf('.');
         final String baseName = dot >= 0 ? fileName.substring(0, dot) : fileName;
-        final var payload = JsonObject.of("name", baseName);
-        final var futures = List.of(
-                fileSystem.props(path).map(props -> JsonObject.of("modifiedTime", props.lastModifiedTime())),
-                fileSystem.readFile(path)
-                          .compose(content -> {
-                              final List<String> songPaths = Arrays.stream(content.toString(StandardCharsets.UTF_8)
-                                                                                  .trim()
-                                                                                  .split("\n"))
-                                                                   .filter(s -> !Strings.isBlank(s))
-                                                                   .toList();
-                              final int size = songPaths.size();
-                              if (!songPaths.isEmpty()) {
-                                  return databaseService.song(songPaths.getFirst())
-                                                        .map(song -> {
-                                                            if (song.isEmpty()) {
-                                                                return song;
-                                                            }
-                                                            return JsonObject.of("coverId", song.getInteger("albumId"),
-                                                                                 "songCount", size);
-                                                        });
-                              }
-                              return Future.succeededFuture(JsonObject.of("songCount", size));
-                          })
-        );
-        return Future.all(futures)
+        return Future.all(fileSystem.props(path), fileSystem.readFile(path))
                      .map(compositeFuture -> {
-                         for (JsonObject resp : compositeFuture.<JsonObject>list()) {
-                             if (resp.isEmpty()) {
-                                 return null;
-                             }
-                             payload.mergeIn(resp);
-                         }
-                         return payload;
+                         final FileProps props = compositeFuture.resultAt(0);
+                         final Buffer content = compositeFuture.resultAt(1);
+                         final List<String> songPaths = Arrays.stream(content.toString(StandardCharsets.UTF_8)
+                                                                             .trim()
+                                                                             .split("\n"))
+                                                              .filter(s -> !Strings.isBlank(s))
+                                                              .toList();
+                         final JsonObject payload = JsonObject.of("name", baseName,
+                                                                  "modifiedTime", props.lastModifiedTime(),
+                                                                  "songCount", songPaths.size());
+                         return new PlaylistFile(payload, songPaths.isEmpty() ? null : songPaths.getFirst());
                      });
     }
 
@@ -232,4 +231,7 @@ public class PlaylistServiceImpl implements PlaylistService {
                          .map(__ -> true);
     }
 
+
+    private record PlaylistFile(JsonObject payload, String firstSongPath) {
+    }
 }
@@ -0,0 +1,41 @@
+package server;
+
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageConsumer;
+import org.reactivestreams.Publisher;
+
+/**
+ * Events of an event bus address shared by every subscription. A single consumer is registered while the topic has
+ * subscribers, each subscriber only keeps a few undelivered events and drops the oldest ones when it falls behind,
+ * so a slow socket costs neither the event bus nor the other subscribers.
+ *
+ * @param <T> type of message body
+ */
+final class EventTopic<T> {
+    private static final int BUFFER_SIZE = 16;
+
+    private final Flowable<T> events;
+
+    /**
+     * @param eventBus event bus
+     * @param address  address to consume
+     */
+    EventTopic(final EventBus eventBus, final String address) {
+        this.events = Flowable.<T>create(emitter -> {
+                                  final MessageConsumer<T> consumer = eventBus.consumer(address, message -> emitter.onNext(message.body()));
+                                  emitter.setCancellable(consumer::unregister);
+                              }, BackpressureStrategy.LATEST)
+                              .publish()
+                              .refCount();
+    }
+
+    /**
+     * @return events published after the subscription
+     */
+    Publisher<T> subscribe() {
+        return events.onBackpressureBuffer(BUFFER_SIZE, null, BackpressureOverflowStrategy.DROP_OLDEST);
+    }
+}
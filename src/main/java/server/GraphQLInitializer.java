@@ -3,6 +3,7 @@ package server;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import database.DatabaseService;
+import enums.AlbumSort;
 import graphql.GraphQL;
 import graphql.analysis.MaxQueryComplexityInstrumentation;
 import graphql.analysis.MaxQueryDepthInstrumentation;
@@ -18,27 +19,40 @@ import graphql.schema.idl.RuntimeWiring;
 import graphql.schema.idl.SchemaGenerator;
 import graphql.schema.idl.SchemaParser;
 import graphql.schema.idl.TypeDefinitionRegistry;
-import io.reactivex.rxjava3.processors.PublishProcessor;
 import io.vertx.core.Future;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.handler.graphql.instrumentation.JsonObjectAdapter;
 import io.vertx.ext.web.handler.graphql.instrumentation.VertxFutureAdapter;
 import models.Album;
+import models.Song;
+import org.dataloader.BatchLoader;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderFactory;
+import org.dataloader.DataLoaderRegistry;
 import org.reactivestreams.Publisher;
 import player.PlayerService;
 import playlists.PlaylistService;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 
 import static enums.WorkerAction.DATABASE_UPDATE;
+import static enums.WorkerAction.PLAYBACK_STATE_UPDATE;
 import static enums.WorkerAction.PLAYER_SONG_UPDATE;
 import static enums.WorkerAction.SCAN_DIRECTORY;
+import static enums.WorkerAction.SCAN_PROGRESS;
 import static enums.WorkerAction.UPDATE_DIRECTORY;
 
 final class GraphQLInitializer {
+    static final String SONG_LOADER = "song";
+    static final String ALBUM_LOADER = "album";
+    static final String ALBUM_SONGS_LOADER = "albumSongs";
+
     private static final Cache<String, PreparsedDocumentEntry> QUERY_CACHE = Caffeine.newBuilder().maximumSize(1000).build();
 
     private GraphQLInitializer() {
@@ -75,11 +89,34 @@ final class GraphQLInitializer {
                                       final PlaylistService playlistService,
                                       final PlayerService playerService,
                                       final EventBus eventBus) {
-        final DataFetcher<Future<List<Album>>> albums = environment -> databaseService.albums();
+        // songs are resolved by Album.songs, only for the albums whose songs are selected
+        final DataFetcher<Future<List<JsonObject>>> albums = environment -> databaseService.albumSummaries();
+
+        final DataFetcher<CompletionStage<List<Song>>> albumSongs = environment -> {
+            if (environment.getSource() instanceof Album album) {
+                return CompletableFuture.completedFuture(album.songs());
+            }
+            final int id = environment.<JsonObject>getSource().getInteger("id");
+            final DataLoader<Integer, List<Song>> loader = environment.getDataLoader(ALBUM_SONGS_LOADER);
+            if (loader == null) {
+                return databaseService.songsForAlbums(List.of(id))
+                                      .map(songs -> songs.getOrDefault(id, List.of()))
+                                      .toCompletionStage();
+            }
+            return loader.load(id);
+        };
 
-        final DataFetcher<Future<Album>> album = environment -> {
+        final DataFetcher<Future<JsonObject>> albumPage = environment -> {
+            final int first = extractField(environment, "first");
+            final String after = environment.getArgument("after");
+            final String sortBy = extractField(environment, "sortBy");
+            return databaseService.albums(first, after, AlbumSort.valueOf(sortBy));
+        };
+
+        final DataFetcher<CompletionStage<Album>> album = environment -> {
             final int id = extractField(environment, "id");
-            return databaseService.album(id);
+            final DataLoader<Integer, Album> loader = environment.getDataLoader(ALBUM_LOADER);
+            return loader == null ? databaseService.album(id).toCompletionStage() : loader.load(id);
         };
 
         final DataFetcher<Future<List<JsonObject>>> genres = environment -> databaseService.genres();
@@ -113,12 +150,11 @@ final class GraphQLInitializer {
             return Future.succeededFuture(true);
         };
 
-        final DataFetcher<Publisher<Boolean>> onDatabaseUpdate = environment -> {
-            final PublishProcessor<Boolean> processor = PublishProcessor.create();
-            final var consumer = eventBus.<Boolean>consumer(DATABASE_UPDATE.name(), message -> processor.onNext(message.body()));
-            return processor.doOnCancel(consumer::unregister)
-                            .doOnTerminate(consumer::unregister);
-        };
+        final EventTopic<Boolean> databaseUpdateTopic = new EventTopic<>(eventBus, DATABASE_UPDATE.name());
+        final DataFetcher<Publisher<Boolean>> onDatabaseUpdate = environment -> databaseUpdateTopic.subscribe();
+
+        final EventTopic<JsonObject> scanProgressTopic = new EventTopic<>(eventBus, SCAN_PROGRESS.name());
+        final DataFetcher<Publisher<JsonObject>> onScanProgress = environment -> scanProgressTopic.subscribe();
 
         final DataFetcher<Future<JsonObject>> stats = environment -> databaseService.stats();
 
@@ -134,6 +170,7 @@ final class GraphQLInitializer {
         initializePlayerOperations(wiringBuilder, playerService, eventBus);
         return wiringBuilder
                 .type(GraphqlOperationType.Query.name(), builder -> builder.dataFetcher("Albums", albums))
+                .type(GraphqlOperationType.Query.name(), builder -> builder.dataFetcher("AlbumPage", albumPage))
                 .type(GraphqlOperationType.Query.name(), builder -> builder.dataFetcher("Album", album))
                 .type(GraphqlOperationType.Query.name(), builder -> builder.dataFetcher("Genres", genres))
                 .type(GraphqlOperationType.Query.name(), builder -> builder.dataFetcher("GenreAlbums", albumsForGenre))
@@ -143,23 +180,32 @@ final class GraphQLInitializer {
                 .type(GraphqlOperationType.Query.name(), builder -> builder.dataFetcher("ArtistAlbums", albumsForArtist))
                 .type(GraphqlOperationType.Query.name(), builder -> builder.dataFetcher("Stats", stats))
                 .type(GraphqlOperationType.Query.name(), builder -> builder.dataFetcher("Search", search))
+                .type("Album", builder -> builder.dataFetcher("songs", albumSongs))
                 .type(GraphqlOperationType.Mutation.name(), builder -> builder.dataFetcher("Build", build))
                 .type(GraphqlOperationType.Mutation.name(), builder -> builder.dataFetcher("Update", update))
                 .type(GraphqlOperationType.Subscription.name(), builder -> builder.dataFetcher("OnDatabaseUpdate", onDatabaseUpdate))
+                .type(GraphqlOperationType.Subscription.name(), builder -> builder.dataFetcher("OnScanProgress", onScanProgress))
                 .scalar(ExtendedScalars.GraphQLLong)
                 .build();
     }
 
 
     private static void initializeSongOperations(final RuntimeWiring.Builder wiringBuilder, final DatabaseService databaseService) {
-        final DataFetcher<Future<JsonObject>> song = environment -> {
+        final DataFetcher<CompletionStage<JsonObject>> song = environment -> {
             final String path = extractField(environment, "path");
-            return databaseService.song(path);
+            final DataLoader<String, JsonObject> loader = environment.getDataLoader(SONG_LOADER);
+            return loader == null ? databaseService.song(path).toCompletionStage() : loader.load(path);
         };
 
-        final DataFetcher<Future<List<JsonObject>>> songs = environment -> {
+        final DataFetcher<CompletionStage<List<JsonObject>>> songs = environment -> {
             final List<String> paths = extractField(environment, "paths");
-            return databaseService.songsFromPath(paths);
+            final DataLoader<String, JsonObject> loader = environment.getDataLoader(SONG_LOADER);
+            if (loader == null) {
+                return databaseService.songsFromPath(paths).toCompletionStage();
+            }
+            // songs missing from the database are loaded as empty objects
+            return loader.loadMany(paths)
+                         .thenApply(result -> result.stream().filter(o -> !o.isEmpty()).toList());
         };
 
         wiringBuilder.type(GraphqlOperationType.Query.name(), builder -> builder.dataFetcher("Song", song))
@@ -220,12 +266,11 @@ final class GraphQLInitializer {
 
         final DataFetcher<Future<JsonObject>> playbackStatus = environment -> playerService.playbackStatus();
 
-        final DataFetcher<Publisher<Boolean>> onPlaybackSongUpdate = environment -> {
-            final PublishProcessor<Boolean> processor = PublishProcessor.create();
-            final var consumer = eventBus.<Boolean>consumer(PLAYER_SONG_UPDATE.name(), message -> processor.onNext(message.body()));
-            return processor.doOnCancel(consumer::unregister)
-                            .doOnTerminate(consumer::unregister);
-        };
+        final EventTopic<Boolean> playbackSongUpdateTopic = new EventTopic<>(eventBus, PLAYER_SONG_UPDATE.name());
+        final DataFetcher<Publisher<Boolean>> onPlaybackSongUpdate = environment -> playbackSongUpdateTopic.subscribe();
+
+        final EventTopic<JsonObject> playbackStateUpdateTopic = new EventTopic<>(eventBus, PLAYBACK_STATE_UPDATE.name());
+        final DataFetcher<Publisher<JsonObject>> onPlaybackStateUpdate = environment -> playbackStateUpdateTopic.subscribe();
 
         final DataFetcher<Future<Integer>> playSong = environment -> {
             final String songPath = extractField(environment, "songPath");
@@ -279,7 +324,51 @@ final class GraphQLInitializer {
                 .type(GraphqlOperationType.Mutation.name(), builder -> builder.dataFetcher("AddSongsToQueue", addSongsToQueue))
                 .type(GraphqlOperationType.Mutation.name(), builder -> builder.dataFetcher("RemoveSongFromQueue", removeSongFromQueue))
                 .type(GraphqlOperationType.Mutation.name(), builder -> builder.dataFetcher("ClearQueue", clearQueue))
-                .type(GraphqlOperationType.Subscription.name(), builder -> builder.dataFetcher("OnPlaybackSongUpdate", onPlaybackSongUpdate));
+                .type(GraphqlOperationType.Subscription.name(), builder -> builder.dataFetcher("OnPlaybackSongUpdate", onPlaybackSongUpdate))
+                .type(GraphqlOperationType.Subscription.name(), builder -> builder.dataFetcher("OnPlaybackStateUpdate", onPlaybackStateUpdate));
+    }
+
+    /**
+     * Create loaders coalescing song, album and album track list lookups of one execution into a single query each.
+     * Loaders cache what they load, so a registry must only serve a single request.
+     *
+     * @param databaseService database service
+     * @return registry to attach to the execution input
+     */
+    static DataLoaderRegistry createDataLoaderRegistry(final DatabaseService databaseService) {
+        final BatchLoader<String, JsonObject> songBatchLoader = paths -> databaseService
+                .songsFromPath(paths)
+                .map(songs -> {
+                    final Map<String, JsonObject> songMap = new HashMap<>(songs.size() * 2);
+                    for (JsonObject song : songs) {
+                        songMap.put(song.getString("path"), song);
+                    }
+                    // same as song(path), missing songs resolve to an empty object
+                    return paths.stream().map(path -> songMap.getOrDefault(path, JsonObject.of())).toList();
+                })
+                .toCompletionStage();
+
+        final BatchLoader<Integer, Album> albumBatchLoader = ids -> databaseService
+                .albumsFromIds(ids)
+                .map(albums -> {
+                    final Map<Integer, Album> albumMap = new HashMap<>(albums.size() * 2);
+                    for (Album album : albums) {
+                        albumMap.put(album.id(), album);
+                    }
+                    return ids.stream().map(albumMap::get).toList();
+                })
+                .toCompletionStage();
+
+        final BatchLoader<Integer, List<Song>> albumSongsBatchLoader = ids -> databaseService
+                .songsForAlbums(ids)
+                .map(songs -> ids.stream().map(id -> songs.getOrDefault(id, List.of())).toList())
+                .toCompletionStage();
+
+        return DataLoaderRegistry.newRegistry()
+                                 .register(SONG_LOADER, DataLoaderFactory.newDataLoader(songBatchLoader))
+                                 .register(ALBUM_LOADER, DataLoaderFactory.newDataLoader(albumBatchLoader))
+                                 .register(ALBUM_SONGS_LOADER, DataLoaderFactory.newDataLoader(albumSongsBatchLoader))
+                                 .build();
     }
 
     private static <T> T extractField(final DataFetchingEnvironment env, final String key) {
@@ -0,0 +1,79 @@
+package server;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.vertx.core.buffer.Buffer;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serialized responses of queries reading the library only. The library only changes with {@code DATABASE_UPDATE},
+ * {@code CATALOG_UPDATE} is published once the database service serves the update, which starts a new generation
+ * so responses and ETags of the previous generation are never served again.
+ */
+final class LibraryResponseCache {
+    // root fields answered from the library, playlists and player state change without DATABASE_UPDATE
+    static final Set<String> LIBRARY_FIELDS = Set.of("Albums",
+                                                     "AlbumPage",
+                                                     "Album",
+                                                     "Genres",
+                                                     "GenreAlbums",
+                                                     "AlbumArtists",
+                                                     "AlbumArtistAlbums",
+                                                     "Artists",
+                                                     "ArtistAlbums",
+                                                     "Stats",
+                                                     "Search",
+                                                     "Song",
+                                                     "Songs",
+                                                     "__typename");
+
+    private static final int MAX_RESPONSES = 500;
+
+    // generations restart with the server, keep ETags of a previous run from matching
+    private final String instance = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Cache<Key, Buffer> responses = Caffeine.newBuilder().maximumSize(MAX_RESPONSES).build();
+
+    /**
+     * Start a new generation after the library is updated.
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+        responses.invalidateAll();
+    }
+
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * @return strong ETag of every library response of the generation
+     */
+    String etag(final long generation) {
+        return "\"" + instance + "-" + generation + "\"";
+    }
+
+    Buffer get(final Key key) {
+        return responses.getIfPresent(key);
+    }
+
+    void put(final Key key, final Buffer response) {
+        // skip responses finished after the library changed
+        if (key.generation() == generation.get()) {
+            responses.put(key, response);
+        }
+    }
+
+    /**
+     * @param generation    generation the response is built from
+     * @param hash          SHA-256 hash of the query document
+     * @param operationName operation to run, null if the document has a single operation
+     * @param variables     encoded variables
+     */
+    record Key(long generation, String hash, String operationName, String variables) {
+    }
+}
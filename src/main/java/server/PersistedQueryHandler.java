@@ -0,0 +1,295 @@
+package server;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import graphql.ExecutionInput;
+import graphql.GraphQL;
+import graphql.language.Field;
+import graphql.language.OperationDefinition;
+import graphql.parser.InvalidSyntaxException;
+import graphql.parser.Parser;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.dataloader.DataLoaderRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Automatic persisted queries. Clients send the SHA-256 hash of a query in
+ * {@code extensions.persistedQuery.sha256Hash} instead of the query text, and send the text along with the hash
+ * once the server answers {@code PersistedQueryNotFound}. Hashed queries can be sent as GET requests with a short,
+ * stable URL, so browsers and proxies can cache their responses.
+ * Responses of queries reading only the library are kept until the next {@code CATALOG_UPDATE} and carry an ETag,
+ * so clients revalidating with {@code If-None-Match} get {@code 304 Not Modified} until the library changes.
+ * Plain requests reading only the library are answered the same way, keyed by the hash of their query text,
+ * other plain requests are passed on to the regular GraphQL handler.
+ */
+final class PersistedQueryHandler implements Handler<RoutingContext> {
+    private static final int MAX_PERSISTED_QUERIES = 1000;
+
+    private static final String NOT_FOUND = "PersistedQueryNotFound";
+
+    private final GraphQL graphQL;
+    private final Supplier<DataLoaderRegistry> dataLoaderRegistry;
+    private final LibraryResponseCache responseCache;
+
+    // query documents by hash, registered by clients
+    private final Cache<String, PersistedQuery> persistedQueries = Caffeine.newBuilder()
+                                                                         .maximumSize(MAX_PERSISTED_QUERIES)
+                                                                         .build();
+
+    /**
+     * @param graphQL            graphQL instance
+     * @param dataLoaderRegistry fresh loaders for each execution
+     * @param responseCache      responses of queries reading the library only
+     */
+    PersistedQueryHandler(final GraphQL graphQL,
+                          final Supplier<DataLoaderRegistry> dataLoaderRegistry,
+                          final LibraryResponseCache responseCache) {
+        this.graphQL = graphQL;
+        this.dataLoaderRegistry = dataLoaderRegistry;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public void handle(final RoutingContext ctx) {
+        final JsonObject request;
+        final String persistedHash;
+        final String query;
+        final JsonObject variables;
+        try {
+            request = readRequest(ctx);
+            if (request == null) {
+                ctx.next();
+                return;
+            }
+            persistedHash = persistedQueryHash(request);
+            query = request.getString("query");
+            variables = request.getJsonObject("variables");
+        } catch (DecodeException | ClassCastException e) {
+            ctx.fail(400, e);
+            return;
+        }
+
+        final String hash;
+        final PersistedQuery persistedQuery;
+        if (persistedHash == null) {
+            if (query == null) {
+                ctx.next();
+                return;
+            }
+            // plain request, library queries are answered here to share the cached responses and ETags
+            hash = sha256(query);
+            persistedQuery = persistedQueries.get(hash, __ -> PersistedQuery.of(query));
+            if (!persistedQuery.library()) {
+                ctx.next();
+                return;
+            }
+        } else if (query == null) {
+            hash = persistedHash;
+            persistedQuery = persistedQueries.getIfPresent(hash);
+            if (persistedQuery == null) {
+                // the client retries with the query text
+                sendErrors(ctx, 200, NOT_FOUND, "PERSISTED_QUERY_NOT_FOUND");
+                return;
+            }
+        } else if (!persistedHash.equals(sha256(query))) {
+            sendErrors(ctx, 400, "provided sha does not match query", "PERSISTED_QUERY_HASH_MISMATCH");
+            return;
+        } else {
+            hash = persistedHash;
+            persistedQuery = persistedQueries.get(hash, __ -> PersistedQuery.of(query));
+        }
+
+        final boolean get = ctx.request().method() == HttpMethod.GET;
+        if (get && !persistedQuery.readOnly()) {
+            // GET must never change state, mutations are only accepted over POST
+            sendErrors(ctx, 405, "Mutations are not allowed over GET.", "METHOD_NOT_ALLOWED");
+            return;
+        }
+
+        final String operationName = request.getString("operationName");
+        if (!persistedQuery.library()) {
+            if (get) {
+                // player and playlist state, never reuse a response
+                ctx.response().putHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            }
+            execute(ctx, persistedQuery, operationName, variables, request.getJsonObject("extensions"))
+                    .onSuccess(response -> send(ctx, response.buffer()));
+            return;
+        }
+
+        // library responses only change with the generation, clients revalidate with the ETag
+        final long generation = responseCache.generation();
+        final String etag = responseCache.etag(generation);
+        ctx.response().putHeader(HttpHeaders.ETAG, etag);
+        if (get) {
+            ctx.response().putHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=0, must-revalidate");
+            if (matches(ctx.request().getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+                ctx.response().setStatusCode(304).end();
+                return;
+            }
+        }
+        final LibraryResponseCache.Key key = new LibraryResponseCache.Key(generation,
+                                                                          hash,
+                                                                          operationName,
+                                                                          variables == null ? null : variables.encode());
+        final Buffer cached = responseCache.get(key);
+        if (cached != null) {
+            send(ctx, cached);
+            return;
+        }
+        execute(ctx, persistedQuery, operationName, variables, request.getJsonObject("extensions"))
+                .onSuccess(response -> {
+                    if (response.successful()) {
+                        responseCache.put(key, response.buffer());
+                    }
+                    send(ctx, response.buffer());
+                });
+    }
+
+    private Future<Response> execute(final RoutingContext ctx,
+                                     final PersistedQuery persistedQuery,
+                                     final String operationName,
+                                     final JsonObject variables,
+                                     final JsonObject extensions) {
+        final ExecutionInput input = ExecutionInput.newExecutionInput()
+                                                   .query(persistedQuery.query())
+                                                   .operationName(operationName)
+                                                   .variables(variables == null ? Map.of() : variables.getMap())
+                                                   .extensions(extensions == null ? Map.of() : extensions.getMap())
+                                                   .graphQLContext(Map.of(RoutingContext.class, ctx))
+                                                   .dataLoaderRegistry(dataLoaderRegistry.get())
+                                                   .build();
+        return Future.fromCompletionStage(graphQL.executeAsync(input))
+                     .map(result -> new Response(new JsonObject(result.toSpecification()).toBuffer(), result.getErrors().isEmpty()))
+                     .onFailure(ctx::fail);
+    }
+
+    private static void send(final RoutingContext ctx, final Buffer response) {
+        ctx.response()
+           .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+           .end(response);
+    }
+
+    /**
+     * @param ifNoneMatch {@code If-None-Match} header
+     * @param etag        current ETag
+     * @return whether the client already has the current response
+     */
+    static boolean matches(final String ifNoneMatch, final String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            final String value = candidate.trim();
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return GraphQL request as json, null if the request is not a single json request
+     */
+    private static JsonObject readRequest(final RoutingContext ctx) {
+        if (ctx.request().method() == HttpMethod.GET) {
+            final String query = ctx.queryParams().get("query");
+            final String extensions = ctx.queryParams().get("extensions");
+            if (query == null && extensions == null) {
+                return null;
+            }
+            final String variables = ctx.queryParams().get("variables");
+            return new JsonObject().put("query", query)
+                                   .put("operationName", ctx.queryParams().get("operationName"))
+                                   .put("variables", variables == null ? null : new JsonObject(variables))
+                                   .put("extensions", extensions == null ? null : new JsonObject(extensions));
+        }
+        final String contentType = ctx.request().getHeader(HttpHeaders.CONTENT_TYPE);
+        if (ctx.request().method() != HttpMethod.POST
+            || contentType == null
+            || !contentType.startsWith("application/json")
+            || ctx.body().isEmpty()) {
+            return null;
+        }
+        // batched requests are left to the GraphQL handler
+        final Object body = Json.decodeValue(ctx.body().buffer());
+        return body instanceof JsonObject json ? json : null;
+    }
+
+    private static String persistedQueryHash(final JsonObject request) {
+        final JsonObject extensions = request.getJsonObject("extensions");
+        if (extensions == null) {
+            return null;
+        }
+        final JsonObject persistedQuery = extensions.getJsonObject("persistedQuery");
+        final String hash = persistedQuery == null ? null : persistedQuery.getString("sha256Hash");
+        return hash == null ? null : hash.toLowerCase(Locale.ROOT);
+    }
+
+    private static void sendErrors(final RoutingContext ctx, final int status, final String message, final String code) {
+        final JsonObject error = JsonObject.of("message", message, "extensions", JsonObject.of("code", code));
+        ctx.response()
+           .setStatusCode(status)
+           .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+           .end(JsonObject.of("errors", JsonArray.of(error)).toBuffer());
+    }
+
+    static String sha256(final String query) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param query    query document
+     * @param readOnly whether the document only has query operations, so it is safe to run over GET
+     * @param library  whether the document only reads the library, so its response is cached until the library changes
+     */
+    private record PersistedQuery(String query, boolean readOnly, boolean library) {
+        static PersistedQuery of(final String query) {
+            final List<OperationDefinition> operations;
+            try {
+                operations = Parser.parse(query).getDefinitionsOfType(OperationDefinition.class);
+            } catch (InvalidSyntaxException e) {
+                // the execution reports the syntax error
+                return new PersistedQuery(query, true, false);
+            }
+            final boolean readOnly = operations.stream()
+                                               .allMatch(operation -> operation.getOperation() == OperationDefinition.Operation.QUERY);
+            // fragments at the root could select anything, they are not looked into
+            final boolean library = readOnly && operations.stream()
+                                                          .flatMap(operation -> operation.getSelectionSet().getSelections().stream())
+                                                          .allMatch(selection -> selection instanceof Field field
+                                                                                 && LibraryResponseCache.LIBRARY_FIELDS.contains(field.getName()));
+            return new PersistedQuery(query, readOnly, library);
+        }
+    }
+
+    /**
+     * @param buffer     serialized response
+     * @param successful whether the execution has no errors
+     */
+    private record Response(Buffer buffer, boolean successful) {
+    }
+}
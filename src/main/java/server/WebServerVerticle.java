@@ -24,6 +24,7 @@ import playlists.PlaylistService;
 
 import static config.ServerConfig.enableGraphQLDebug;
 import static config.ServerConfig.isWebUiEnabled;
+import static enums.WorkerAction.CATALOG_UPDATE;
 
 public final class WebServerVerticle extends VerticleBase {
     private static final Logger LOGGER = LogManager.getLogger(WebServerVerticle.class);
@@ -68,6 +69,10 @@ public final class WebServerVerticle extends VerticleBase {
                                                          playerService,
                                                          vertx.eventBus());
 
+        final LibraryResponseCache responseCache = new LibraryResponseCache();
+        // after the database service reloaded the catalog, so a new generation is never built from the old one
+        vertx.eventBus().consumer(CATALOG_UPDATE.name(), __ -> responseCache.invalidate());
+
         router.route().handler(BodyHandler.create());
 
         if (enableWebUI) {
@@ -90,9 +95,21 @@ public final class WebServerVerticle extends VerticleBase {
 
         router.route("/covers/*").handler(StaticImageHandler.create(ServerConfig.COVER_PATH));
 
+        // fresh loaders per execution, batched lookups never serve entries cached by another request
         router.route("/graphql")
-              .handler(GraphQLWSHandler.create(graphQL))
-              .handler(GraphQLHandler.create(graphQL));
+              .handler(GraphQLWSHandler.builder(graphQL)
+                                       .beforeExecute(builderWithContext -> builderWithContext
+                                               .builder()
+                                               .dataLoaderRegistry(GraphQLInitializer.createDataLoaderRegistry(databaseService)))
+                                       .build())
+              .handler(new PersistedQueryHandler(graphQL,
+                                                 () -> GraphQLInitializer.createDataLoaderRegistry(databaseService),
+                                                 responseCache))
+              .handler(GraphQLHandler.builder(graphQL)
+                                     .beforeExecute(builderWithContext -> builderWithContext
+                                             .builder()
+                                             .dataLoaderRegistry(GraphQLInitializer.createDataLoaderRegistry(databaseService)))
+                                     .build());
 
         final GraphiQLHandlerOptions options = new GraphiQLHandlerOptions()
                 .setEnabled(enableDebugConsole);
@@ -0,0 +1,2 @@
+ALTER TABLE songs
+    ADD COLUMN size INTEGER not null default 0
@@ -1,3 +1,3 @@
 DELETE
-FROM albums
-WHERE albums.id not in (SELECT songs.album from songs)
+FROM {prefix}albums
+WHERE {prefix}albums.id not in (SELECT {prefix}songs.album from {prefix}songs)
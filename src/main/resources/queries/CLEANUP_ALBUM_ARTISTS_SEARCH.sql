@@ -0,0 +1,3 @@
+DELETE
+FROM {prefix}album_artists_search
+WHERE rowid not in (SELECT {prefix}albumArtists.id from {prefix}albumArtists)
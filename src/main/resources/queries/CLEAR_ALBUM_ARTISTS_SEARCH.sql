@@ -0,0 +1 @@
+DELETE FROM main.album_artists_search
@@ -0,0 +1,2 @@
+DELETE
+FROM album_id_changes
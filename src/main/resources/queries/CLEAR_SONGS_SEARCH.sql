@@ -0,0 +1 @@
+DELETE FROM main.songs_search
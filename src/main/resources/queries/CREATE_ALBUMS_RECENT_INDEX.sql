@@ -0,0 +1,2 @@
+create index if not exists albums_recent_index
+    on albums (add_time desc);
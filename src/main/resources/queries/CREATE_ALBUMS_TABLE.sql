@@ -1,4 +1,4 @@
-create table if not exists albums
+create table if not exists {prefix}albums
 (
     name           TEXT    not null,
     date           TEXT,
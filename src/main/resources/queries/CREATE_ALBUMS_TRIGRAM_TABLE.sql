@@ -0,0 +1,7 @@
+create virtual table if not exists albums_trigram using fts5
+(
+    name,
+    content = 'albums',
+    content_rowid = 'id',
+    tokenize = 'trigram'
+);
@@ -0,0 +1,2 @@
+create index if not exists album_artists_album_index
+    on albumArtists (album, id);
@@ -0,0 +1,5 @@
+create virtual table if not exists {prefix}album_artists_search using fts5
+(
+    name,
+    tokenize = 'unicode61 remove_diacritics 2'
+);
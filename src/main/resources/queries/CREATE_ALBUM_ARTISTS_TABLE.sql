@@ -1,10 +1,10 @@
-create table if not exists albumArtists
+create table if not exists {prefix}albumArtists
 (
     id    INTEGER not null,
     name  TEXT    not null,
     album INTEGER not null
         constraint artists_albums_id_fk
-            references albums
+            references {prefix}albums
             on delete cascade,
     constraint albumArtists_pk
         unique (id, album)
@@ -0,0 +1,6 @@
+create virtual table if not exists album_artists_trigram using fts5
+(
+    name,
+    content = 'albumArtists',
+    tokenize = 'trigram'
+);
@@ -0,0 +1,6 @@
+create trigger if not exists album_artists_delete_trigram
+    after delete
+    on albumArtists
+begin
+    INSERT INTO album_artists_trigram(album_artists_trigram, rowid, name) VALUES ('delete', OLD.rowid, OLD.name);
+end
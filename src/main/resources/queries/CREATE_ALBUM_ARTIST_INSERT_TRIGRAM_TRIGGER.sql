@@ -0,0 +1,6 @@
+create trigger if not exists album_artists_insert_trigram
+    after insert
+    on albumArtists
+begin
+    INSERT INTO album_artists_trigram(rowid, name) VALUES (NEW.rowid, NEW.name);
+end
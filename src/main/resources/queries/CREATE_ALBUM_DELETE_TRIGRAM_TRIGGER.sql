@@ -0,0 +1,6 @@
+create trigger if not exists albums_delete_trigram
+    after delete
+    on albums
+begin
+    INSERT INTO albums_trigram(albums_trigram, rowid, name) VALUES ('delete', OLD.id, OLD.name);
+end
@@ -0,0 +1,7 @@
+create table if not exists album_id_changes
+(
+    old_id INTEGER not null
+        constraint album_id_changes_pk
+            primary key,
+    new_id INTEGER not null
+);
@@ -0,0 +1,6 @@
+create trigger if not exists albums_insert_stats
+    after insert
+    on albums
+begin
+    UPDATE library_stats SET albums = albums + 1;
+end
@@ -0,0 +1,6 @@
+create trigger if not exists albums_insert_trigram
+    after insert
+    on albums
+begin
+    INSERT INTO albums_trigram(rowid, name) VALUES (NEW.id, NEW.name);
+end
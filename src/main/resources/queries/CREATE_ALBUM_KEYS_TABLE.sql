@@ -0,0 +1,10 @@
+create table if not exists album_keys
+(
+    id     INTEGER not null
+        constraint album_keys_pk
+            primary key,
+    name   TEXT    not null,
+    artist TEXT    not null,
+    constraint album_keys_natural_key
+        unique (name, artist)
+);
@@ -0,0 +1,2 @@
+create index if not exists artists_album_index
+    on artists (album);
@@ -1,8 +1,8 @@
-create table if not exists artists
+create table if not exists {prefix}artists
 (
     album INTEGER not null
         constraint artists_albums_id_fk
-            references albums
+            references {prefix}albums
             on delete cascade,
     id    INTEGER not null,
     name  TEXT    not null,
@@ -0,0 +1,8 @@
+create trigger if not exists artists_delete_stats
+    after delete
+    on artists
+begin
+    UPDATE library_stats
+    SET artists = artists - 1
+    WHERE NOT EXISTS (SELECT 1 FROM artists WHERE id = OLD.id);
+end
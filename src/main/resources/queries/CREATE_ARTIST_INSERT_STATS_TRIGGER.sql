@@ -0,0 +1,9 @@
+create trigger if not exists artists_insert_stats
+    after insert
+    on artists
+begin
+    -- artists has a row per album of the artist, count the artist with its first album only
+    UPDATE library_stats
+    SET artists = artists + 1
+    WHERE NOT EXISTS (SELECT 1 FROM artists WHERE id = NEW.id AND album <> NEW.album);
+end
@@ -0,0 +1,9 @@
+create table if not exists artist_keys
+(
+    id   INTEGER not null
+        constraint artist_keys_pk
+            primary key,
+    name TEXT    not null
+        constraint artist_keys_natural_key
+            unique
+);
@@ -0,0 +1,2 @@
+create index if not exists genres_album_index
+    on genres (album);
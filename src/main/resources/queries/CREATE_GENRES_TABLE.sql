@@ -1,9 +1,9 @@
-create table if not exists genres
+create table if not exists {prefix}genres
 (
     name  TEXT    not null,
     album INTEGER not null
         constraint genres_albums_id_fk
-            references albums
+            references {prefix}albums
             on delete cascade,
     id    INTEGER not null,
     constraint genres_pk
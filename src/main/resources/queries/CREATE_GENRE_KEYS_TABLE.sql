@@ -0,0 +1,9 @@
+create table if not exists genre_keys
+(
+    id   INTEGER not null
+        constraint genre_keys_pk
+            primary key,
+    name TEXT    not null
+        constraint genre_keys_natural_key
+            unique
+);
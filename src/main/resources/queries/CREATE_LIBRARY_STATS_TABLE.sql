@@ -0,0 +1,13 @@
+create table if not exists library_stats
+(
+    id       INTEGER not null
+        constraint library_stats_pk
+            primary key
+        constraint library_stats_single_row
+            check (id = 0),
+    albums   INTEGER not null,
+    songs    INTEGER not null,
+    artists  INTEGER not null,
+    duration INTEGER not null,
+    size     INTEGER not null
+);
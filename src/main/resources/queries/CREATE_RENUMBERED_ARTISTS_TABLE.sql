@@ -0,0 +1,7 @@
+create temp table renumbered_artists
+(
+    name TEXT    not null
+        constraint renumbered_artists_pk
+            primary key,
+    id   INTEGER not null
+);
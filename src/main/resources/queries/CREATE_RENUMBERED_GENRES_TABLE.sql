@@ -0,0 +1,7 @@
+create temp table renumbered_genres
+(
+    name TEXT    not null
+        constraint renumbered_genres_pk
+            primary key,
+    id   INTEGER not null
+);
@@ -0,0 +1,7 @@
+create table if not exists schema_version
+(
+    version      INTEGER not null
+        constraint schema_version_pk
+            primary key,
+    applied_time INTEGER not null
+);
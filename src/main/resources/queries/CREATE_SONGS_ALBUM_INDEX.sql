@@ -0,0 +1,2 @@
+create index if not exists songs_album_index
+    on songs (album);
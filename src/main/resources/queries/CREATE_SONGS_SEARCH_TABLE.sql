@@ -0,0 +1,9 @@
+create virtual table if not exists {prefix}songs_search using fts5
+(
+    name,
+    artists,
+    album,
+    composer,
+    album_artist,
+    tokenize = 'unicode61 remove_diacritics 2'
+);
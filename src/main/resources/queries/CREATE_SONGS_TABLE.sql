@@ -1,10 +1,10 @@
-create table if not exists songs
+create table if not exists {prefix}songs
 (
     name          TEXT    not null,
     artists       TEXT,
     album         INTEGER not null
         constraint songs_albums_id_fk
-            references albums
+            references {prefix}albums
             on delete cascade,
     path          TEXT    not null
         constraint songs_pk
@@ -17,6 +17,7 @@ create table if not exists songs
     track_num     INTEGER not null,
     duration      INTEGER not null,
     modified_time INTEGER not null,
-    add_time      INTEGER not null
+    add_time      INTEGER not null,
+    size          INTEGER not null default 0
 );
 
@@ -0,0 +1,8 @@
+create virtual table if not exists songs_trigram using fts5
+(
+    name,
+    artists,
+    composer,
+    content = 'songs',
+    tokenize = 'trigram'
+);
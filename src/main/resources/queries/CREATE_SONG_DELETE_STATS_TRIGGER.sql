@@ -0,0 +1,9 @@
+create trigger if not exists songs_delete_stats
+    after delete
+    on songs
+begin
+    UPDATE library_stats
+    SET songs    = songs - 1,
+        duration = duration - OLD.duration,
+        size     = size - OLD.size;
+end
@@ -0,0 +1,7 @@
+create trigger if not exists songs_delete_trigram
+    after delete
+    on songs
+begin
+    INSERT INTO songs_trigram(songs_trigram, rowid, name, artists, composer)
+    VALUES ('delete', OLD.rowid, OLD.name, OLD.artists, OLD.composer);
+end
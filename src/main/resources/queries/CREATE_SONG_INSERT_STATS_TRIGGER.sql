@@ -0,0 +1,9 @@
+create trigger if not exists songs_insert_stats
+    after insert
+    on songs
+begin
+    UPDATE library_stats
+    SET songs    = songs + 1,
+        duration = duration + NEW.duration,
+        size     = size + NEW.size;
+end
@@ -0,0 +1,7 @@
+create trigger if not exists songs_insert_trigram
+    after insert
+    on songs
+begin
+    INSERT INTO songs_trigram(rowid, name, artists, composer)
+    VALUES (NEW.rowid, NEW.name, NEW.artists, NEW.composer);
+end
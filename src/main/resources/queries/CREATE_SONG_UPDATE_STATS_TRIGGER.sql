@@ -0,0 +1,8 @@
+create trigger if not exists songs_update_stats
+    after update of duration, size
+    on songs
+begin
+    UPDATE library_stats
+    SET duration = duration - OLD.duration + NEW.duration,
+        size     = size - OLD.size + NEW.size;
+end
@@ -0,0 +1,9 @@
+create trigger if not exists songs_update_trigram
+    after update of name, artists, composer
+    on songs
+begin
+    INSERT INTO songs_trigram(songs_trigram, rowid, name, artists, composer)
+    VALUES ('delete', OLD.rowid, OLD.name, OLD.artists, OLD.composer);
+    INSERT INTO songs_trigram(rowid, name, artists, composer)
+    VALUES (NEW.rowid, NEW.name, NEW.artists, NEW.composer);
+end
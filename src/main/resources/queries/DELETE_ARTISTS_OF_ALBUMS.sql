@@ -0,0 +1,3 @@
+DELETE
+FROM {prefix}artists
+WHERE album in (SELECT value FROM json_each(?))
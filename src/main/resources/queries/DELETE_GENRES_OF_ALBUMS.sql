@@ -0,0 +1,3 @@
+DELETE
+FROM {prefix}genres
+WHERE album in (SELECT value FROM json_each(?))
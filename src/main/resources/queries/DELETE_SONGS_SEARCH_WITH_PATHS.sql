@@ -0,0 +1,3 @@
+DELETE
+FROM {prefix}songs_search
+WHERE rowid in (SELECT rowid FROM {prefix}songs WHERE path in (SELECT value FROM json_each(?)))
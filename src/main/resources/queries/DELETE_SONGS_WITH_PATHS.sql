@@ -1,3 +1,3 @@
 DELETE
-FROM songs
-WHERE path in (?)
+FROM {prefix}songs
+WHERE path in (SELECT value FROM json_each(?))
@@ -0,0 +1 @@
+DROP TABLE IF EXISTS {prefix}songs_search
@@ -0,0 +1,3 @@
+SELECT DISTINCT album
+FROM {prefix}songs
+WHERE path in (SELECT value FROM json_each(?))
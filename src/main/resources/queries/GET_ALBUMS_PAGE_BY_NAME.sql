@@ -0,0 +1,14 @@
+SELECT a.id,
+       a.name,
+       ar.name          AS artist,
+       a.date,
+       a.add_time       AS addTime,
+       a.modified_time  AS modifiedTime,
+       a.total_duration AS totalDuration
+FROM albums a
+         LEFT JOIN (SELECT album, MIN(id) AS min_id FROM albumArtists GROUP BY album) fa ON fa.album = a.id
+         LEFT JOIN albumArtists ar ON ar.id = fa.min_id AND ar.album = a.id
+WHERE a.name >= ?
+  AND (a.name > ? OR a.add_time < ? OR (a.add_time = ? AND a.id > ?))
+ORDER BY a.name, a.add_time DESC, a.id
+LIMIT ?
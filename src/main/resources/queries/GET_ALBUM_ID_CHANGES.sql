@@ -0,0 +1,3 @@
+SELECT old_id, new_id
+FROM album_id_changes
+WHERE old_id <> new_id
@@ -0,0 +1,3 @@
+SELECT k.id, k.name, k.artist
+FROM json_each(?) j
+         JOIN album_keys k ON k.name = j.value ->> 0 AND k.artist = j.value ->> 1
@@ -0,0 +1,3 @@
+SELECT id, name
+FROM artist_keys
+WHERE name in (SELECT value FROM json_each(?))
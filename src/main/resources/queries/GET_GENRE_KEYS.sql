@@ -0,0 +1,3 @@
+SELECT id, name
+FROM genre_keys
+WHERE name in (SELECT value FROM json_each(?))
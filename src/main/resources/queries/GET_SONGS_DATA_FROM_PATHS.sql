@@ -12,7 +12,6 @@ SELECT s.name,
        duration,
        s.modified_time as modifiedTime,
        a.add_time as addTime
-FROM albums a
-         LEFT JOIN
-     songs s ON a.id = s.album
-WHERE s.path in (?)
+FROM songs s
+         JOIN albums a ON a.id = s.album
+WHERE s.path in (SELECT value FROM json_each(?))
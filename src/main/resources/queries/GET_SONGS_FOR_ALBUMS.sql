@@ -0,0 +1,12 @@
+SELECT s.album     AS album_id,
+       a.name      AS album_name,
+       s.name      AS song_name,
+       s.artists   AS song_artists,
+       s.path      AS song_path,
+       s.disc      AS song_disc,
+       s.track_num AS song_track_num,
+       s.duration  AS song_duration
+FROM songs s
+         JOIN albums a ON a.id = s.album
+WHERE s.album in (SELECT value FROM json_each(?))
+ORDER BY s.album, s.disc, s.track_num
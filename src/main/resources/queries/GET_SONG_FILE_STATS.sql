@@ -0,0 +1,4 @@
+SELECT path,
+       modified_time AS modifiedTime,
+       size
+FROM songs
@@ -0,0 +1,5 @@
+SELECT DISTINCT s.path,
+                s.modified_time AS modifiedTime,
+                s.size
+FROM json_each(?) p
+         JOIN songs s ON s.path = p.value OR (s.path > p.value || ? AND s.path < p.value || ?)
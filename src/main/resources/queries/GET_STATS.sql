@@ -1,4 +1,2 @@
-SELECT
-    (SELECT COUNT(*) FROM albums) AS albums,
-    (SELECT COUNT(*) FROM songs) AS songs,
-    (SELECT COUNT(DISTINCT id) FROM artists) AS artists;
+SELECT albums, songs, artists, duration, size
+FROM library_stats
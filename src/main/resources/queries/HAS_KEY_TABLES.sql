@@ -0,0 +1,4 @@
+SELECT COUNT(*) AS count
+FROM sqlite_master
+WHERE type = 'table'
+  AND name = 'album_keys'
@@ -0,0 +1,3 @@
+SELECT COUNT(*) AS count
+FROM pragma_table_info('songs')
+WHERE name = 'size'
@@ -1,3 +1,3 @@
-INSERT INTO albumArtists(id, name, album)
+INSERT INTO {prefix}albumArtists(id, name, album)
 VALUES (?, ?, ?)
 ON CONFLICT (id, album) DO NOTHING
@@ -0,0 +1,2 @@
+INSERT OR REPLACE INTO {prefix}album_artists_search(rowid, name)
+VALUES (?, ?)
@@ -0,0 +1,3 @@
+INSERT INTO album_keys(name, artist)
+VALUES (?, ?)
+ON CONFLICT (name, artist) DO NOTHING
@@ -0,0 +1,7 @@
+INSERT INTO {prefix}artists(id, name, album)
+SELECT DISTINCT k.id, s.artists, s.album
+FROM {prefix}songs s
+         JOIN artist_keys k ON k.name = s.artists
+WHERE s.album in (SELECT value FROM json_each(?))
+  AND trim(s.artists) <> ''
+ON CONFLICT (id, album) DO NOTHING
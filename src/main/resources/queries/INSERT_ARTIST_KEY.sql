@@ -0,0 +1,3 @@
+INSERT INTO artist_keys(name)
+VALUES (?)
+ON CONFLICT (name) DO NOTHING
@@ -1,3 +0,0 @@
-INSERT INTO genres(id, name, album)
-VALUES (?, ?, ?)
-ON CONFLICT (id,album) DO NOTHING
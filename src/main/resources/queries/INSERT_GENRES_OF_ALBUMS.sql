@@ -0,0 +1,7 @@
+INSERT INTO {prefix}genres(id, name, album)
+SELECT DISTINCT k.id, s.genre, s.album
+FROM {prefix}songs s
+         JOIN genre_keys k ON k.name = s.genre
+WHERE s.album in (SELECT value FROM json_each(?))
+  AND trim(s.genre) <> ''
+ON CONFLICT (id, album) DO NOTHING
@@ -1,4 +1,15 @@
-INSERT INTO songs(name, artists, album, path, date, genre, composer, performer, disc, track_num, duration,
-                  modified_time, add_time)
-VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-ON CONFLICT (path) DO NOTHING
+INSERT INTO {prefix}songs(name, artists, album, path, date, genre, composer, performer, disc, track_num, duration,
+                  modified_time, add_time, size)
+VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+ON CONFLICT (path) DO UPDATE SET name          = excluded.name,
+                                 artists       = excluded.artists,
+                                 album         = excluded.album,
+                                 date          = excluded.date,
+                                 genre         = excluded.genre,
+                                 composer      = excluded.composer,
+                                 performer     = excluded.performer,
+                                 disc          = excluded.disc,
+                                 track_num     = excluded.track_num,
+                                 duration      = excluded.duration,
+                                 modified_time = excluded.modified_time,
+                                 size          = excluded.size
@@ -0,0 +1,4 @@
+INSERT OR REPLACE INTO {prefix}songs_search(rowid, name, artists, album, composer, album_artist)
+SELECT rowid, name, artists, ?, composer, ?
+FROM {prefix}songs
+WHERE path = ?
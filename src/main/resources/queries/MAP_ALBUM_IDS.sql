@@ -0,0 +1,3 @@
+INSERT INTO album_id_changes(old_id, new_id)
+SELECT id, ROW_NUMBER() OVER (ORDER BY add_time, id)
+FROM albums
@@ -0,0 +1,3 @@
+INSERT INTO renumbered_artists(name, id)
+SELECT name, ROW_NUMBER() OVER (ORDER BY name)
+FROM (SELECT name FROM artists UNION SELECT name FROM albumArtists)
@@ -0,0 +1,3 @@
+INSERT INTO renumbered_genres(name, id)
+SELECT name, ROW_NUMBER() OVER (ORDER BY name)
+FROM (SELECT DISTINCT name FROM genres)
@@ -0,0 +1,4 @@
+INSERT INTO {prefix}album_artists_search(rowid, name)
+SELECT id, MIN(name)
+FROM {prefix}albumArtists
+GROUP BY id
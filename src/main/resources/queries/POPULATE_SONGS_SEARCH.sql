@@ -0,0 +1,6 @@
+INSERT INTO {prefix}songs_search(rowid, name, artists, album, composer, album_artist)
+SELECT s.rowid, s.name, s.artists, a.name, s.composer, ar.name
+FROM {prefix}songs s
+         JOIN {prefix}albums a ON a.id = s.album
+         LEFT JOIN (SELECT album, MIN(id) AS min_id FROM {prefix}albumArtists GROUP BY album) fa ON fa.album = a.id
+         LEFT JOIN {prefix}albumArtists ar ON ar.id = fa.min_id AND ar.album = a.id
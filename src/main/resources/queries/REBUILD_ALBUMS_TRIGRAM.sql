@@ -0,0 +1,2 @@
+INSERT INTO albums_trigram(albums_trigram)
+VALUES ('rebuild')
@@ -0,0 +1,2 @@
+INSERT INTO album_artists_trigram(album_artists_trigram)
+VALUES ('rebuild')
@@ -0,0 +1,2 @@
+INSERT INTO songs_trigram(songs_trigram)
+VALUES ('rebuild')
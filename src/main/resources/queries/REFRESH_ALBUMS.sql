@@ -0,0 +1,5 @@
+UPDATE {prefix}albums
+SET total_duration = (SELECT COALESCE(SUM(s.duration), 0) FROM {prefix}songs s WHERE s.album = {prefix}albums.id),
+    add_time       = COALESCE((SELECT MIN(s.add_time) FROM {prefix}songs s WHERE s.album = {prefix}albums.id), add_time),
+    modified_time  = COALESCE((SELECT MIN(s.modified_time) FROM {prefix}songs s WHERE s.album = {prefix}albums.id), modified_time)
+WHERE id in (SELECT value FROM json_each(?))
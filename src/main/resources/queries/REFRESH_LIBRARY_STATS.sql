@@ -0,0 +1,8 @@
+INSERT OR REPLACE INTO library_stats(id, albums, songs, artists, duration, size)
+SELECT 0,
+       (SELECT COUNT(*) FROM albums),
+       COUNT(*),
+       (SELECT COUNT(DISTINCT id) FROM artists),
+       COALESCE(SUM(duration), 0),
+       COALESCE(SUM(size), 0)
+FROM songs
@@ -0,0 +1 @@
+ALTER TABLE {prefix}albums RENAME TO albums
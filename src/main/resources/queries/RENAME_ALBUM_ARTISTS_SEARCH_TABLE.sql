@@ -0,0 +1 @@
+ALTER TABLE {prefix}album_artists_search RENAME TO album_artists_search
@@ -0,0 +1 @@
+ALTER TABLE {prefix}albumArtists RENAME TO albumArtists
@@ -0,0 +1 @@
+ALTER TABLE {prefix}artists RENAME TO artists
@@ -0,0 +1 @@
+ALTER TABLE {prefix}genres RENAME TO genres
@@ -0,0 +1 @@
+ALTER TABLE {prefix}songs_search RENAME TO songs_search
@@ -0,0 +1 @@
+ALTER TABLE {prefix}songs RENAME TO songs
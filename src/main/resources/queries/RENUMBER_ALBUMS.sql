@@ -0,0 +1,4 @@
+INSERT INTO {prefix}albums(name, date, add_time, modified_time, total_duration, id)
+SELECT a.name, a.date, a.add_time, a.modified_time, a.total_duration, c.new_id
+FROM albums a
+         JOIN album_id_changes c ON c.old_id = a.id
@@ -0,0 +1,5 @@
+INSERT INTO {prefix}albumArtists(id, name, album)
+SELECT r.id, a.name, c.new_id
+FROM albumArtists a
+         JOIN album_id_changes c ON c.old_id = a.album
+         JOIN renumbered_artists r ON r.name = a.name
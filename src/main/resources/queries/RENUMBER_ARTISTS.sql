@@ -0,0 +1,5 @@
+INSERT INTO {prefix}artists(album, id, name)
+SELECT c.new_id, r.id, a.name
+FROM artists a
+         JOIN album_id_changes c ON c.old_id = a.album
+         JOIN renumbered_artists r ON r.name = a.name
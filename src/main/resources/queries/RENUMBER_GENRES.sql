@@ -0,0 +1,5 @@
+INSERT INTO {prefix}genres(name, album, id)
+SELECT g.name, c.new_id, r.id
+FROM genres g
+         JOIN album_id_changes c ON c.old_id = g.album
+         JOIN renumbered_genres r ON r.name = g.name
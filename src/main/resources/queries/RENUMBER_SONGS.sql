@@ -0,0 +1,19 @@
+INSERT INTO {prefix}songs(name, artists, album, path, genre, date, composer, performer, disc, track_num, duration,
+                          modified_time, add_time, size)
+SELECT s.name,
+       s.artists,
+       c.new_id,
+       s.path,
+       s.genre,
+       s.date,
+       s.composer,
+       s.performer,
+       s.disc,
+       s.track_num,
+       s.duration,
+       s.modified_time,
+       s.add_time,
+       s.size
+FROM songs s
+         JOIN album_id_changes c ON c.old_id = s.album
+ORDER BY s.rowid
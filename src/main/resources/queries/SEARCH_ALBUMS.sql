@@ -5,8 +5,12 @@ SELECT albums.id      as id,
        add_time       as addTime,
        modified_time  as modifiedTime,
        total_duration as totalDuration
-FROM main.albums
+FROM (SELECT s.album AS id, MIN(f.rank) AS rank
+      FROM songs_search f
+               JOIN songs s ON s.rowid = f.rowid
+      WHERE songs_search MATCH '{album album_artist} : (' || ? || ')'
+      GROUP BY s.album) matched
+         JOIN main.albums ON albums.id = matched.id
          LEFT JOIN
      albumArtists ar ON ar.album = albums.id
-WHERE albums.name LIKE ?
-ORDER BY 2, 1
+ORDER BY matched.rank, 2, 1
@@ -0,0 +1,21 @@
+SELECT albums.id      as id,
+       albums.name    as name,
+       ar.name        as artist,
+       date,
+       add_time       as addTime,
+       modified_time  as modifiedTime,
+       total_duration as totalDuration
+FROM (SELECT id, MIN(rank) AS rank
+      FROM (SELECT rowid AS id, rank
+            FROM albums_trigram
+            WHERE albums_trigram MATCH ?
+            UNION ALL
+            SELECT a.album AS id, f.rank
+            FROM album_artists_trigram f
+                     JOIN albumArtists a ON a.rowid = f.rowid
+            WHERE album_artists_trigram MATCH ?)
+      GROUP BY id) matched
+         JOIN main.albums ON albums.id = matched.id
+         LEFT JOIN
+     albumArtists ar ON ar.album = albums.id
+ORDER BY matched.rank, 2, 1
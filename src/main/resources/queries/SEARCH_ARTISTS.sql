@@ -1,7 +1,8 @@
-SELECT id,
-       name,
-       COUNT(album) AS albumCount
-FROM albumArtists
-WHERE name LIKE ?
-GROUP BY id, name
-ORDER BY name;
+SELECT ar.id,
+       ar.name,
+       COUNT(ar.album) AS albumCount
+FROM album_artists_search f
+         JOIN albumArtists ar ON ar.id = f.rowid
+WHERE album_artists_search MATCH ?
+GROUP BY ar.id, ar.name
+ORDER BY MIN(f.rank), ar.name;
@@ -0,0 +1,7 @@
+SELECT id,
+       name,
+       COUNT(album) AS albumCount
+FROM albumArtists
+WHERE name LIKE ? ESCAPE '\'
+GROUP BY id, name
+ORDER BY name;
@@ -0,0 +1,8 @@
+SELECT ar.id,
+       ar.name,
+       COUNT(ar.album) AS albumCount
+FROM album_artists_trigram f
+         JOIN albumArtists ar ON ar.rowid = f.rowid
+WHERE album_artists_trigram MATCH ?
+GROUP BY ar.id, ar.name
+ORDER BY MIN(f.rank), ar.name;
@@ -1,20 +1,19 @@
 SELECT s.name,
-       artists,
+       s.artists,
        a.id            as albumId,
        a.name          as album,
-       path,
+       s.path,
        s.date,
-       genre,
-       composer,
-       performer,
+       s.genre,
+       s.composer,
+       s.performer,
        s.disc,
-       track_num       as trackNum,
-       duration,
+       s.track_num     as trackNum,
+       s.duration,
        s.modified_time as modifiedTime,
        a.add_time      as addTime
-FROM albums a
-         LEFT JOIN
-     songs s ON a.id = s.album
-WHERE s.name LIKE ?
-   OR artists LIKE ?
-ORDER BY 2, 1
+FROM songs_search f
+         JOIN songs s ON s.rowid = f.rowid
+         JOIN albums a ON a.id = s.album
+WHERE songs_search MATCH '{name artists composer} : (' || ? || ')'
+ORDER BY f.rank, 2, 1
@@ -0,0 +1,20 @@
+SELECT s.name,
+       s.artists,
+       a.id            as albumId,
+       a.name          as album,
+       s.path,
+       s.date,
+       s.genre,
+       s.composer,
+       s.performer,
+       s.disc,
+       s.track_num     as trackNum,
+       s.duration,
+       s.modified_time as modifiedTime,
+       a.add_time      as addTime
+FROM songs s
+         JOIN albums a ON a.id = s.album
+WHERE s.name LIKE ? ESCAPE '\'
+   OR s.artists LIKE ? ESCAPE '\'
+   OR s.composer LIKE ? ESCAPE '\'
+ORDER BY 2, 1
@@ -0,0 +1,19 @@
+SELECT s.name,
+       s.artists,
+       a.id            as albumId,
+       a.name          as album,
+       s.path,
+       s.date,
+       s.genre,
+       s.composer,
+       s.performer,
+       s.disc,
+       s.track_num     as trackNum,
+       s.duration,
+       s.modified_time as modifiedTime,
+       a.add_time      as addTime
+FROM songs_trigram f
+         JOIN songs s ON s.rowid = f.rowid
+         JOIN albums a ON a.id = s.album
+WHERE songs_trigram MATCH ?
+ORDER BY f.rank, 2, 1
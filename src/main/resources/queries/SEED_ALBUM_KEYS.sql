@@ -0,0 +1,5 @@
+INSERT OR IGNORE INTO album_keys(id, name, artist)
+SELECT a.id, a.name, COALESCE(ar.name, '')
+FROM albums a
+         LEFT JOIN (SELECT album, MIN(id) AS min_id FROM albumArtists GROUP BY album) fa ON fa.album = a.id
+         LEFT JOIN albumArtists ar ON ar.id = fa.min_id AND ar.album = a.id
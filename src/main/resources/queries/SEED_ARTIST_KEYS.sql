@@ -0,0 +1,6 @@
+INSERT OR IGNORE INTO artist_keys(id, name)
+SELECT id, name
+FROM artists
+UNION
+SELECT id, name
+FROM albumArtists
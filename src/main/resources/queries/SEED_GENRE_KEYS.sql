@@ -0,0 +1,3 @@
+INSERT OR IGNORE INTO genre_keys(id, name)
+SELECT DISTINCT id, name
+FROM genres
@@ -38,7 +38,7 @@ class AlbumDataAggregationTest {
     void totalDurationSumsAllSongs() {
         final List<SongData> songs = List.of(song("A", 100), song("B", 200), song("C", 150));
 
-        final Map<Integer, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(songs);
+        final Map<AudioDataCollectorVerticle.AlbumKey, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(songs);
 
         final AlbumData album = result.values().iterator().next();
         assertEquals(3, album.songs().size());
@@ -49,7 +49,7 @@ class AlbumDataAggregationTest {
     void singleSongDurationNotDoubled() {
         final List<SongData> songs = List.of(song("Only", 300));
 
-        final Map<Integer, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(songs);
+        final Map<AudioDataCollectorVerticle.AlbumKey, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(songs);
 
         final AlbumData album = result.values().iterator().next();
         assertEquals(1, album.songs().size());
@@ -67,7 +67,7 @@ class AlbumDataAggregationTest {
                 .title("Song2").genre("").date("2024").composer("").performer("")
                 .disc(1).trackNum(1).duration(200).atime(1000L).mtime(2000L).build();
 
-        final Map<Integer, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(List.of(song1, song2));
+        final Map<AudioDataCollectorVerticle.AlbumKey, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(List.of(song1, song2));
 
         assertEquals(2, result.size());
         for (AlbumData album : result.values()) {
@@ -76,6 +76,25 @@ class AlbumDataAggregationTest {
         }
     }
 
+    @Test
+    void albumsWithCollidingHashesAggregatedSeparately() {
+        // "Aa" and "BB" share the same String hash code
+        final SongData song1 = SongData.builder()
+                .path("/music/a.flac").artist("A").album("Aa").albumArtist("A")
+                .title("Song1").genre("").date("2024").composer("").performer("")
+                .disc(1).trackNum(1).duration(100).atime(1000L).mtime(2000L).build();
+        final SongData song2 = SongData.builder()
+                .path("/music/b.flac").artist("A").album("BB").albumArtist("A")
+                .title("Song2").genre("").date("2024").composer("").performer("")
+                .disc(1).trackNum(1).duration(200).atime(1000L).mtime(2000L).build();
+
+        final Map<AudioDataCollectorVerticle.AlbumKey, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(List.of(song1, song2));
+
+        assertEquals(2, result.size());
+        assertEquals("Aa", result.get(AudioDataCollectorVerticle.AlbumKey.of(song1)).name());
+        assertEquals("BB", result.get(AudioDataCollectorVerticle.AlbumKey.of(song2)).name());
+    }
+
     @Test
     void addTimeKeepsMinimum() {
         final List<SongData> songs = List.of(
@@ -83,7 +102,7 @@ class AlbumDataAggregationTest {
                 song("B", 100, 1000L, 1000L),
                 song("C", 100, 2000L, 1000L));
 
-        final Map<Integer, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(songs);
+        final Map<AudioDataCollectorVerticle.AlbumKey, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(songs);
 
         assertEquals(1000L, result.values().iterator().next().atime());
     }
@@ -95,7 +114,7 @@ class AlbumDataAggregationTest {
                 song("B", 100, 1000L, 1000L),
                 song("C", 100, 1000L, 2000L));
 
-        final Map<Integer, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(songs);
+        final Map<AudioDataCollectorVerticle.AlbumKey, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(songs);
 
         assertEquals(1000L, result.values().iterator().next().mtime());
     }
@@ -107,7 +126,7 @@ class AlbumDataAggregationTest {
                 .title("Song").genre("").date("2024").composer("").performer("")
                 .disc(1).trackNum(1).duration(100).atime(1000L).mtime(2000L).build();
 
-        final Map<Integer, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(List.of(song));
+        final Map<AudioDataCollectorVerticle.AlbumKey, AlbumData> result = AudioDataCollectorVerticle.aggregateSongData(List.of(song));
 
         assertEquals("SongArtist", result.values().iterator().next().artist());
     }
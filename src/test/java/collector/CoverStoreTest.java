@@ -0,0 +1,123 @@
+package collector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoverStoreTest {
+
+    @TempDir
+    Path coverDirectory;
+
+    private final AtomicInteger optimizedCount = new AtomicInteger();
+
+    // writes the raw image as every optimized file
+    private final ImageOptimizer imageOptimizer = (image, directory, name, sourceDimension, variantDimensions) -> {
+        optimizedCount.incrementAndGet();
+        try {
+            Files.write(directory.resolve(name + ".webp"), image);
+            for (int dimension : variantDimensions) {
+                Files.write(directory.resolve(String.format("%1$s_%2$dx%2$d.webp", name, dimension)), image);
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    };
+
+    @Test
+    void identicalCoversAreOptimizedOnce() throws IOException {
+        final CoverStore coverStore = new CoverStore(imageOptimizer, coverDirectory, 800, List.of(50));
+        final byte[] image = {1, 2, 3};
+
+        assertTrue(coverStore.save(1, image));
+        assertTrue(coverStore.save(2, image.clone()));
+
+        assertEquals(1, optimizedCount.get());
+        assertArrayEquals(image, Files.readAllBytes(coverDirectory.resolve("1.webp")));
+        assertTrue(Files.isSameFile(coverDirectory.resolve("1_50x50.webp"), coverDirectory.resolve("2_50x50.webp"))
+                   || Files.mismatch(coverDirectory.resolve("1_50x50.webp"), coverDirectory.resolve("2_50x50.webp")) == -1);
+    }
+
+    @Test
+    void changedCoverReplacesAlbumCover() throws IOException {
+        final CoverStore coverStore = new CoverStore(imageOptimizer, coverDirectory, 800, List.of());
+
+        assertTrue(coverStore.save(1, new byte[]{1}));
+        assertTrue(coverStore.save(1, new byte[]{2}));
+
+        assertEquals(2, optimizedCount.get());
+        assertArrayEquals(new byte[]{2}, Files.readAllBytes(coverDirectory.resolve("1.webp")));
+        assertFalse(Files.exists(coverDirectory.resolve("1.webp.tmp")));
+    }
+
+    @Test
+    void failedOptimizationIsNotLinked() {
+        final CoverStore coverStore = new CoverStore((image, directory, name, source, variants) -> false,
+                                                     coverDirectory, 800, List.of());
+
+        assertFalse(coverStore.save(1, new byte[]{1}));
+        assertFalse(Files.exists(coverDirectory.resolve("1.webp")));
+    }
+
+    @Test
+    void storedImagesAreNotOptimizedAgain() throws IOException {
+        final byte[] image = {1, 2, 3};
+        assertTrue(new CoverStore(imageOptimizer, coverDirectory, 800, List.of(50)).save(1, image));
+
+        // a later scan starts with a new store
+        assertTrue(new CoverStore(imageOptimizer, coverDirectory, 800, List.of(50)).save(2, image));
+
+        assertEquals(1, optimizedCount.get());
+        assertArrayEquals(image, Files.readAllBytes(coverDirectory.resolve("2_50x50.webp")));
+    }
+
+    @Test
+    void unusedCoversAreRemoved() throws IOException {
+        final CoverStore coverStore = new CoverStore(imageOptimizer, coverDirectory, 800, List.of(50));
+        assertTrue(coverStore.save(1, new byte[]{1}));
+        assertTrue(coverStore.save(2, new byte[]{2}));
+        assertTrue(coverStore.save(3, new byte[]{1}));
+
+        CoverStore.removeUnused(coverDirectory, Set.of(1));
+
+        final Path storeDirectory = coverDirectory.resolve("store");
+        assertTrue(Files.exists(coverDirectory.resolve("1.webp")));
+        assertTrue(Files.exists(coverDirectory.resolve("1_50x50.webp")));
+        assertFalse(Files.exists(coverDirectory.resolve("2.webp")));
+        assertFalse(Files.exists(coverDirectory.resolve("3_50x50.webp")));
+        assertTrue(Files.exists(storeDirectory.resolve(CoverStore.hash(new byte[]{1}) + ".webp")));
+        assertFalse(Files.exists(storeDirectory.resolve(CoverStore.hash(new byte[]{2}) + ".webp")));
+        assertFalse(Files.exists(storeDirectory.resolve(CoverStore.hash(new byte[]{2}) + "_50x50.webp")));
+    }
+
+    @Test
+    void renumberedCoversSwapIds() throws IOException {
+        final CoverStore coverStore = new CoverStore(imageOptimizer, coverDirectory, 800, List.of(50));
+        assertTrue(coverStore.save(-5, new byte[]{1}));
+        assertTrue(coverStore.save(1, new byte[]{2}));
+
+        CoverStore.moveCovers(coverDirectory, Map.of(-5, 1, 1, 2));
+        // an interrupted run moves nothing twice
+        CoverStore.moveCovers(coverDirectory, Map.of(-5, 1, 1, 2));
+        CoverStore.finishMovedCovers(coverDirectory);
+
+        assertFalse(Files.exists(coverDirectory.resolve("-5.webp")));
+        assertArrayEquals(new byte[]{1}, Files.readAllBytes(coverDirectory.resolve("1.webp")));
+        assertArrayEquals(new byte[]{1}, Files.readAllBytes(coverDirectory.resolve("1_50x50.webp")));
+        assertArrayEquals(new byte[]{2}, Files.readAllBytes(coverDirectory.resolve("2.webp")));
+        assertArrayEquals(new byte[]{2}, Files.readAllBytes(coverDirectory.resolve("2_50x50.webp")));
+    }
+}
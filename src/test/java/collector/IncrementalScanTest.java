@@ -0,0 +1,51 @@
+package collector;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IncrementalScanTest {
+
+    private JsonObject stat(String path, long modifiedTime, long size) {
+        return JsonObject.of("path", path, "modifiedTime", modifiedTime, "size", size);
+    }
+
+    @Test
+    void unchangedSongsAreSkipped() {
+        final List<SongFile> songFiles = List.of(new SongFile("/music/a.flac", 1000L, 10L));
+
+        final List<String> result = AudioDataCollectorVerticle.changedSongPaths(
+                songFiles, Map.of("/music/a.flac", stat("/music/a.flac", 1000L, 10L)));
+
+        assertEquals(List.of(), result);
+    }
+
+    @Test
+    void newAndModifiedSongsAreParsed() {
+        final List<SongFile> songFiles = List.of(new SongFile("/music/a.flac", 1000L, 10L),
+                                                 new SongFile("/music/b.flac", 3000L, 20L),
+                                                 new SongFile("/music/c.flac", 1000L, 35L),
+                                                 new SongFile("/music/d.flac", 1000L, 40L));
+
+        final List<String> result = AudioDataCollectorVerticle.changedSongPaths(
+                songFiles, Map.of("/music/a.flac", stat("/music/a.flac", 1000L, 10L),
+                                  "/music/b.flac", stat("/music/b.flac", 2000L, 20L),
+                                  "/music/c.flac", stat("/music/c.flac", 1000L, 30L)));
+
+        assertEquals(List.of("/music/b.flac", "/music/c.flac", "/music/d.flac"), result);
+    }
+
+    @Test
+    void unknownSizeOnlyComparesModifiedTime() {
+        final List<SongFile> songFiles = List.of(new SongFile("/music/a.flac", 1000L, 10L));
+
+        final List<String> result = AudioDataCollectorVerticle.changedSongPaths(
+                songFiles, Map.of("/music/a.flac", stat("/music/a.flac", 1000L, 0L)));
+
+        assertEquals(List.of(), result);
+    }
+}
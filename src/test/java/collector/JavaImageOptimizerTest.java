@@ -0,0 +1,61 @@
+package collector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaImageOptimizerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BufferedImage image(int width, int height) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, 0xFF0000);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    void landscapeImageIsPaddedVertically() {
+        final BufferedImage result = JavaImageOptimizer.resize(image(1000, 500), 800);
+
+        assertEquals(800, result.getWidth());
+        assertEquals(800, result.getHeight());
+        // transparent padding above and below, opaque content in the middle
+        assertEquals(0, result.getRGB(400, 100) >>> 24);
+        assertEquals(0xFF, result.getRGB(400, 400) >>> 24);
+        assertEquals(0, result.getRGB(400, 700) >>> 24);
+    }
+
+    @Test
+    void largeImageIsScaledDown() {
+        final BufferedImage result = JavaImageOptimizer.resize(image(3000, 3000), 50);
+
+        assertEquals(50, result.getWidth());
+        assertEquals(50, result.getHeight());
+        assertEquals(0xFFFF0000, result.getRGB(25, 25));
+    }
+
+    @Test
+    void undecodableImageUsesFallback() {
+        final AtomicBoolean fallbackCalled = new AtomicBoolean(false);
+        final ImageOptimizer optimizer = new JavaImageOptimizer((image, directory, name, source, variants) -> {
+            fallbackCalled.set(true);
+            return true;
+        });
+
+        assertTrue(optimizer.optimize(new byte[]{1, 2, 3}, tempDir, "1", 800, List.of(50)));
+        assertTrue(fallbackCalled.get());
+    }
+}
@@ -0,0 +1,81 @@
+package collector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LibraryWatcherTest {
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    @TempDir
+    Path root;
+
+    private String path(String first, String... more) {
+        return Path.of(first, more).toString();
+    }
+
+    @Test
+    void nestedPathsAreCoalesced() {
+        final Set<String> paths = Set.of(path("/music", "Album"),
+                                         path("/music", "Album", "01.flac"),
+                                         path("/music", "Album", "CD2", "01.flac"),
+                                         path("/music", "Album B", "01.flac"));
+
+        assertEquals(List.of(path("/music", "Album"), path("/music", "Album B", "01.flac")),
+                     LibraryWatcher.coalesce(paths));
+    }
+
+    @Test
+    void siblingPathsAreKept() {
+        final Set<String> paths = Set.of(path("/music", "A", "01.flac"), path("/music", "A", "02.flac"));
+
+        assertEquals(List.of(path("/music", "A", "01.flac"), path("/music", "A", "02.flac")),
+                     LibraryWatcher.coalesce(paths));
+    }
+
+    @Test
+    void changesAreReportedInOneBatch() throws IOException, InterruptedException {
+        final Path album = Files.createDirectory(root.resolve("Album"));
+        final Path modified = Files.write(album.resolve("01.flac"), new byte[]{1});
+        final Path deleted = Files.write(album.resolve("02.flac"), new byte[]{2});
+
+        final BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+        try (LibraryWatcher watcher = new LibraryWatcher(root, DEBOUNCE_MILLIS, batches::add)) {
+            watcher.start();
+
+            final Path created = Files.write(album.resolve("03.flac"), new byte[]{3});
+            Files.write(modified, new byte[]{4});
+            Files.delete(deleted);
+
+            assertEquals(List.of(modified.toString(), deleted.toString(), created.toString()),
+                         batches.poll(10, TimeUnit.SECONDS));
+            assertNull(batches.poll(DEBOUNCE_MILLIS * 3, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    void filesInNewDirectoriesAreReported() throws IOException, InterruptedException {
+        final BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+        try (LibraryWatcher watcher = new LibraryWatcher(root, DEBOUNCE_MILLIS, batches::add)) {
+            watcher.start();
+
+            final Path album = Files.createDirectory(root.resolve("Album"));
+            assertEquals(List.of(album.toString()), batches.poll(10, TimeUnit.SECONDS));
+
+            // the new directory is watched once it is reported
+            final Path song = Files.write(album.resolve("01.flac"), new byte[]{1});
+            assertEquals(List.of(song.toString()), batches.poll(10, TimeUnit.SECONDS));
+        }
+    }
+}
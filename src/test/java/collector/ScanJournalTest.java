@@ -0,0 +1,66 @@
+package collector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void interruptedBuildResumesWithCommittedSongs() throws IOException {
+        final Path file = tempDir.resolve("scan.journal");
+        final ScanJournal journal = ScanJournal.start(file, "/music");
+        journal.commit(List.of("/music/A/01.flac", "/music/A/02.flac"));
+        journal.commit(List.of("/music/B/01.flac"));
+
+        assertTrue(ScanJournal.isInterrupted(file, "/music"));
+        final Optional<ScanJournal> resumed = ScanJournal.resume(file, "/music");
+        assertTrue(resumed.isPresent());
+        assertEquals(Set.of("/music/A/01.flac", "/music/A/02.flac", "/music/B/01.flac"), resumed.get().committedPaths());
+    }
+
+    @Test
+    void journalOfAnotherDirectoryIsIgnored() throws IOException {
+        final Path file = tempDir.resolve("scan.journal");
+        ScanJournal.start(file, "/music").commit(List.of("/music/A/01.flac"));
+
+        assertFalse(ScanJournal.isInterrupted(file, "/other"));
+        assertTrue(ScanJournal.resume(file, "/other").isEmpty());
+    }
+
+    @Test
+    void completedBuildRemovesJournal() throws IOException {
+        final Path file = tempDir.resolve("scan.journal");
+        ScanJournal.start(file, "/music").complete();
+
+        assertFalse(Files.exists(file));
+        assertFalse(ScanJournal.isInterrupted(file, "/music"));
+        assertTrue(ScanJournal.resume(file, "/music").isEmpty());
+    }
+
+    @Test
+    void newBuildDiscardsInterruptedJournal() throws IOException {
+        final Path file = tempDir.resolve("scan.journal");
+        final ScanJournal interrupted = ScanJournal.start(file, "/music");
+        interrupted.commit(List.of("/music/A/01.flac"));
+        assertFalse(interrupted.resumed());
+        assertTrue(ScanJournal.resume(file, "/music").orElseThrow().resumed());
+
+        ScanJournal.start(file, "/music");
+
+        assertEquals(Set.of(), ScanJournal.resume(file, "/music").orElseThrow().committedPaths());
+    }
+}
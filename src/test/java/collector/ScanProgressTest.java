@@ -0,0 +1,59 @@
+package collector;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ScanProgressTest {
+
+    @Test
+    void rateAndEtaAreMeasuredBetweenSnapshots() {
+        final ScanProgress progress = new ScanProgress();
+        progress.start();
+        final long start = System.nanoTime();
+        progress.discovered(100);
+        progress.scheduled(100);
+        for (int i = 0; i < 20; i++) {
+            progress.parsed();
+        }
+        progress.albumsCommitted(2);
+        progress.imageOptimized();
+
+        final JsonObject snapshot = progress.snapshot(false, start + TimeUnit.SECONDS.toNanos(2));
+
+        assertEquals(100L, snapshot.getLong("discovered"));
+        assertEquals(20L, snapshot.getLong("parsed"));
+        assertEquals(2L, snapshot.getLong("albumsCommitted"));
+        assertEquals(1L, snapshot.getLong("imagesOptimized"));
+        assertEquals(10, snapshot.getDouble("rate"), 0.5);
+        assertEquals(8, snapshot.getLong("eta"), 1);
+    }
+
+    @Test
+    void etaIsUnknownWithoutProgress() {
+        final ScanProgress progress = new ScanProgress();
+        progress.start();
+        progress.scheduled(10);
+
+        final JsonObject snapshot = progress.snapshot(false, System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(0, snapshot.getDouble("rate"));
+        assertNull(snapshot.getLong("eta"));
+    }
+
+    @Test
+    void finishedScanHasNoEta() {
+        final ScanProgress progress = new ScanProgress();
+        progress.start();
+        progress.scheduled(10);
+
+        final JsonObject snapshot = progress.snapshot(true);
+
+        assertEquals(0L, snapshot.getLong("eta"));
+        assertEquals(true, snapshot.getBoolean("done"));
+    }
+}
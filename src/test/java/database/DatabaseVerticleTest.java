@@ -1,5 +1,6 @@
 package database;
 
+import enums.AlbumSort;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.Json;
@@ -10,7 +11,9 @@ import io.vertx.jdbcclient.JDBCPool;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
 import io.vertx.sqlclient.PoolOptions;
+import models.Album;
 import models.AlbumData;
+import models.Song;
 import models.SongData;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,12 +29,18 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static config.ServerConfig.DATABASE_CONFIG;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -50,7 +59,10 @@ class DatabaseVerticleTest {
         final JsonObject config = new JsonObject().put(DATABASE_CONFIG, tempDbPath.toString());
 
         databaseService = DatabaseService.create(vertx, config);
-        context.completeNow();
+        // the test database predates the current schema, the migrations bring it up to date
+        databaseService.initialization()
+                       .onSuccess(__ -> context.completeNow())
+                       .onFailure(context::failNow);
     }
 
 
@@ -58,6 +70,9 @@ class DatabaseVerticleTest {
     void tearDown() throws IOException {
         if (tempDbPath != null && Files.exists(tempDbPath)) {
             Files.delete(tempDbPath);
+            // WAL side files
+            Files.deleteIfExists(Path.of(tempDbPath + "-wal"));
+            Files.deleteIfExists(Path.of(tempDbPath + "-shm"));
         }
     }
 
@@ -83,11 +98,83 @@ class DatabaseVerticleTest {
                         assertTrue(names.contains("artists"));
                         assertTrue(names.contains("albumArtists"));
                         assertTrue(names.contains("albums_name_add_time_index"));
+                        assertTrue(names.contains("songs_search"));
+                        assertTrue(names.contains("album_artists_search"));
+                        assertTrue(names.contains("songs_trigram"));
+                        assertTrue(names.contains("album_keys"));
+                        assertTrue(names.contains("artist_keys"));
+                        assertTrue(names.contains("genre_keys"));
+                        assertTrue(names.contains("schema_version"));
+                        assertTrue(names.contains("songs_album_index"));
+                        assertTrue(names.contains("album_artists_album_index"));
                         context.completeNow();
                     }))
                     .onFailure(context::failNow);
     }
 
+    @Test
+    void verifyMigrationOfExistingDatabase(Vertx vertx, VertxTestContext context) {
+        final var pool = JDBCPool.pool(vertx,
+                new JDBCConnectOptions().setJdbcUrl("jdbc:sqlite:" + tempDbPath),
+                new PoolOptions().setMaxSize(1));
+        final var existingService = new DatabaseServiceImpl(pool);
+
+        // every migration was applied by the setup, another run leaves the library as it is
+        existingService.initialization()
+                       .compose(__ -> pool.query("SELECT version FROM schema_version ORDER BY version").execute())
+                       .compose(rows -> {
+                           final List<Integer> versions = new ArrayList<>();
+                           for (var row : rows) {
+                               versions.add(row.getInteger("version"));
+                           }
+                           context.verify(() -> assertEquals(List.of(1, 2, 3, 4, 5, 6), versions));
+                           return existingService.albums();
+                       })
+                       .onSuccess(albums -> context.verify(() -> {
+                           assertEquals(vertx.fileSystem().readFileBlocking("fixtures/db/albums.json").toString().trim(),
+                                        Json.encode(albums));
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow)
+                       .eventually(() -> pool.close());
+    }
+
+    @Test
+    void verifyMigrationRenumbersHashIds(VertxTestContext context) {
+        // ids of the test database are hash codes of names, the setup renumbered them
+        Future.all(databaseService.albums(), databaseService.genres(), databaseService.artists(), databaseService.albumIdChanges())
+              .compose(result -> {
+                  final List<Album> albums = result.resultAt(0);
+                  final List<JsonObject> genres = result.resultAt(1);
+                  final List<JsonObject> artists = result.resultAt(2);
+                  final Map<Integer, Integer> albumIdChanges = result.resultAt(3);
+                  context.verify(() -> {
+                      assertEquals(IntStream.rangeClosed(1, 11).boxed().collect(Collectors.toSet()),
+                                   albums.stream().map(Album::id).collect(Collectors.toSet()));
+                      assertEquals(150, albums.stream().mapToInt(album -> album.songs().size()).sum());
+                      assertTrue(albums.stream().allMatch(album -> album.songs().stream().allMatch(song -> song.albumId() == album.id())));
+                      assertEquals(IntStream.rangeClosed(1, genres.size()).boxed().collect(Collectors.toSet()),
+                                   genres.stream().map(genre -> genre.getInteger("id")).collect(Collectors.toSet()));
+                      assertEquals(IntStream.rangeClosed(1, artists.size()).boxed().collect(Collectors.toSet()),
+                                   artists.stream().map(artist -> artist.getInteger("id")).collect(Collectors.toSet()));
+                      assertEquals(11, albumIdChanges.size());
+                      assertEquals(5, albumIdChanges.get(627123027));
+                  });
+                  return databaseService.clearAlbumIdChanges();
+              })
+              .compose(__ -> databaseService.scan(List.of(albumData("RANDOM_NAME", "RANDOM_PATH"))))
+              .compose(ids -> {
+                  // new ids continue after the renumbered ones
+                  context.verify(() -> assertEquals(List.of(12), ids));
+                  return databaseService.albumIdChanges();
+              })
+              .onSuccess(albumIdChanges -> context.verify(() -> {
+                  assertTrue(albumIdChanges.isEmpty());
+                  context.completeNow();
+              }))
+              .onFailure(context::failNow);
+    }
+
     @Test
     void verifyGetAlbums(Vertx vertx, VertxTestContext context) {
         databaseService.albums()
@@ -100,9 +187,39 @@ class DatabaseVerticleTest {
                        .onFailure(context::failNow);
     }
 
+    @Test
+    void verifyAlbumPageByAddTime(VertxTestContext context) {
+        databaseService.albums(10, null, AlbumSort.ADD_TIME)
+                       .compose(page -> {
+                           assertTrue(page.getBoolean("hasNextPage"));
+                           final List<Long> addTimes = page.getJsonArray("albums").stream()
+                                                           .map(album -> ((JsonObject) album).getLong("addTime"))
+                                                           .toList();
+                           assertEquals(addTimes.stream().sorted(Collections.reverseOrder()).toList(), addTimes);
+                           return databaseService.albums(10, page.getString("endCursor"), AlbumSort.ADD_TIME);
+                       })
+                       .onSuccess(page -> context.verify(() -> {
+                           assertFalse(page.getBoolean("hasNextPage"));
+                           assertEquals(1, page.getJsonArray("albums").size());
+                           assertEquals("杏里 夏盤", page.getJsonArray("albums").getJsonObject(0).getString("name"));
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifyAlbumPageInvalidCursor(VertxTestContext context) {
+        databaseService.albums(10, "not a cursor", AlbumSort.NAME)
+                       .onSuccess(__ -> context.failNow("Invalid cursor should be rejected."))
+                       .onFailure(e -> context.verify(() -> {
+                           assertTrue(e instanceof IllegalArgumentException);
+                           context.completeNow();
+                       }));
+    }
+
     @Test
     void verifyGetAlbum(Vertx vertx, VertxTestContext context) {
-        databaseService.album(2037516188)
+        databaseService.album(10)
                        .onSuccess(album -> context.verify(() -> {
                            assertEquals(vertx.fileSystem().readFileBlocking("fixtures/db/album.json").toString().trim(),
                                         Json.encode(album));
@@ -111,6 +228,28 @@ class DatabaseVerticleTest {
                        .onFailure(context::failNow);
     }
 
+    @Test
+    void verifySongsForAlbums(VertxTestContext context) {
+        final List<Integer> ids = List.of(10, -1);
+        databaseService.songsForAlbums(ids)
+                       .compose(songs -> {
+                           context.verify(() -> {
+                               assertEquals(Set.of(10), songs.keySet());
+                               assertEquals(34, songs.get(10).size());
+                               assertEquals("Everything in Its Right Place", songs.get(10).getFirst().name());
+                           });
+                           // catalog serves the same track lists
+                           return databaseService.refreshCatalog()
+                                                 .compose(__ -> databaseService.songsForAlbums(ids))
+                                                 .map(catalogSongs -> {
+                                                     context.verify(() -> assertEquals(songs, catalogSongs));
+                                                     return catalogSongs;
+                                                 });
+                       })
+                       .onSuccess(__ -> context.completeNow())
+                       .onFailure(context::failNow);
+    }
+
     @Test
     void verifyGenre(Vertx vertx, VertxTestContext context) {
         databaseService.genres()
@@ -149,7 +288,7 @@ class DatabaseVerticleTest {
 
     @Test
     void verifyGetAlbumForGenre(Vertx vertx, VertxTestContext context) {
-        databaseService.albumsForGenre(1471074189)
+        databaseService.albumsForGenre(2)
                        .onSuccess(result -> context.verify(() -> {
                            assertEquals(1, result.size());
                            assertEquals(vertx.fileSystem().readFileBlocking("fixtures/db/albumsForGenre.json").toString().trim(),
@@ -161,7 +300,7 @@ class DatabaseVerticleTest {
 
     @Test
     void verifyGetAlbumForAlbumArtists(Vertx vertx, VertxTestContext context) {
-        databaseService.albumsForAlbumArtist(1034325051)
+        databaseService.albumsForAlbumArtist(5)
                        .onSuccess(result -> context.verify(() -> {
                            assertEquals(6, result.size());
                            assertEquals(vertx.fileSystem().readFileBlocking("fixtures/db/albumsForAlbumArtist.json").toString().trim(),
@@ -173,7 +312,7 @@ class DatabaseVerticleTest {
 
     @Test
     void verifyGetAlbumForArtists(Vertx vertx, VertxTestContext context) {
-        databaseService.albumsForArtist(-1817732934)
+        databaseService.albumsForArtist(1)
                        .onSuccess(result -> context.verify(() -> {
                            assertEquals(2, result.size());
                            assertEquals(vertx.fileSystem().readFileBlocking("fixtures/db/albumsForArtist.json").toString().trim(),
@@ -236,6 +375,106 @@ class DatabaseVerticleTest {
                        .onFailure(context::failNow);
     }
 
+    @Test
+    void verifySearchSyntaxCharacters(Vertx vertx, VertxTestContext context) {
+        Future.all(databaseService.search("  "), databaseService.search("\"mu"), databaseService.search("mu)"))
+              .onSuccess(compositeFuture -> context.verify(() -> {
+                  assertEquals(JsonObject.of("albums", List.of(), "artists", List.of(), "songs", List.of()), compositeFuture.resultAt(0));
+                  final JsonObject expected = vertx.fileSystem().readFileBlocking("fixtures/db/search.json").toJsonObject();
+                  assertEquals(expected, compositeFuture.resultAt(1));
+                  assertEquals(expected, compositeFuture.resultAt(2));
+                  context.completeNow();
+              }))
+              .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifySearchUnsegmentedText(VertxTestContext context) {
+        databaseService.scan(List.of(albumData("東京事変", "PATH_JP")))
+                       .compose(__ -> databaseService.search("事変"))
+                       .onSuccess(result -> context.verify(() -> {
+                           assertEquals("東京事変", result.getJsonArray("songs").getJsonObject(0).getString("name"));
+                           assertEquals("東京事変", result.getJsonArray("albums").getJsonObject(0).getString("name"));
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifySearchUnsegmentedTextByTrigram(VertxTestContext context) {
+        databaseService.scan(List.of(albumData("東京事変", "PATH_JP")))
+                       .compose(__ -> databaseService.search("京事変"))
+                       .compose(result -> {
+                           context.verify(() -> {
+                               assertEquals("東京事変", result.getJsonArray("songs").getJsonObject(0).getString("name"));
+                               assertEquals("東京事変", result.getJsonArray("albums").getJsonObject(0).getString("name"));
+                           });
+                           return databaseService.removeSongs(List.of("PATH_JP"));
+                       })
+                       .compose(__ -> databaseService.search("京事変"))
+                       .onSuccess(result -> context.verify(() -> {
+                           assertEquals(JsonObject.of("albums", List.of(), "artists", List.of(), "songs", List.of()), result);
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifyRebuildIndexesTrigrams(VertxTestContext context) {
+        databaseService.beginRebuild()
+                       .compose(__ -> databaseService.rebuild(List.of(albumData("東京事変", "PATH_JP"))))
+                       .compose(__ -> databaseService.commitRebuild())
+                       .compose(__ -> databaseService.search("東京事変"))
+                       .compose(result -> {
+                           context.verify(() -> assertEquals(1, result.getJsonArray("songs").size()));
+                           // writes after the swap are indexed by the triggers attached to the new tables
+                           return databaseService.scan(List.of(albumData("東京事変 2", "PATH_JP_2")));
+                       })
+                       .compose(__ -> databaseService.search("東京事変"))
+                       .onSuccess(result -> context.verify(() -> {
+                           assertEquals(2, result.getJsonArray("songs").size());
+                           assertEquals(2, result.getJsonArray("albums").size());
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifyAlbumArtistSearchFollowsAlbums(Vertx vertx, VertxTestContext context) {
+        final var pool = JDBCPool.pool(vertx,
+                new JDBCConnectOptions().setJdbcUrl("jdbc:sqlite:" + tempDbPath),
+                new PoolOptions().setMaxSize(1));
+        databaseService.scan(List.of(albumData("Aa", "PATH_AA")))
+                       .compose(__ -> databaseService.removeSongs(List.of("PATH_AA")))
+                       .compose(__ -> pool.query("SELECT COUNT(*) AS count FROM album_artists_search WHERE name = 'RANDOM_ARTIST'")
+                                          .execute())
+                       .onSuccess(rows -> context.verify(() -> {
+                           assertEquals(0, rows.iterator().next().getInteger("count"));
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow)
+                       .eventually(() -> pool.close());
+    }
+
+    @Test
+    void verifySongFileStatsUnderPaths(VertxTestContext context) {
+        final String song = "/home/a/Music/Music/Muse/[Hi-Res][Muse]The Resistance/01-01-Muse-Uprising.flac";
+        Future.all(databaseService.songFileStats(List.of("/home/a/Music/Music/Muse")),
+                   databaseService.songFileStats(List.of("/home/a/Music/Music/Mus", song)),
+                   databaseService.songFileStats(List.of()))
+              .onSuccess(result -> context.verify(() -> {
+                  final List<JsonObject> directory = result.resultAt(0);
+                  assertEquals(11, directory.size());
+                  assertTrue(directory.stream().allMatch(stats -> stats.getString("path").startsWith("/home/a/Music/Music/Muse/")));
+                  // a name prefix is not a parent directory
+                  final List<JsonObject> file = result.resultAt(1);
+                  assertEquals(List.of(song), file.stream().map(stats -> stats.getString("path")).toList());
+                  assertTrue(result.<List<JsonObject>>resultAt(2).isEmpty());
+                  context.completeNow();
+              }))
+              .onFailure(context::failNow);
+    }
+
     @Test
     void verifySongPathOperations(Vertx vertx, VertxTestContext context) {
         databaseService.songPaths()
@@ -279,12 +518,252 @@ class DatabaseVerticleTest {
     void verifyStat(Vertx vertx, VertxTestContext context) {
         databaseService.stats()
                        .onSuccess(result -> context.verify(() -> {
-                           assertEquals(JsonObject.of("albums", 11, "songs", 150, "artists", 6), result);
+                           assertEquals(JsonObject.of("albums", 11, "songs", 150, "artists", 6, "duration", 38167, "size", 0), result);
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifyPathSetAboveVariableLimit(VertxTestContext context) {
+        // SQLite binds at most 32766 parameters per statement
+        final List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 40000; i++) {
+            paths.add("/missing/" + i + ".flac");
+        }
+        databaseService.songPaths()
+                       .compose(songPaths -> {
+                           paths.addAll(songPaths.subList(0, 10));
+                           return databaseService.songsFromPath(paths);
+                       })
+                       .compose(songs -> {
+                           context.verify(() -> assertEquals(10, songs.size()));
+                           return databaseService.removeSongs(paths);
+                       })
+                       .compose(__ -> databaseService.songPaths())
+                       .onSuccess(result -> context.verify(() -> {
+                           assertEquals(140, result.size());
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifyStatFollowsWrites(VertxTestContext context) {
+        final JsonObject stats = JsonObject.of("albums", 11, "songs", 150, "artists", 6, "duration", 38167, "size", 0);
+        databaseService.scan(List.of(albumData("Aa", "PATH_AA")))
+                       .compose(__ -> databaseService.stats())
+                       .compose(result -> {
+                           context.verify(() -> assertEquals(
+                                   JsonObject.of("albums", 12, "songs", 151, "artists", 7, "duration", 38172, "size", 0), result));
+                           return databaseService.removeSongs(List.of("PATH_AA"));
+                       })
+                       .compose(__ -> databaseService.stats())
+                       .onSuccess(result -> context.verify(() -> {
+                           assertEquals(stats, result);
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifyCatalogSnapshot(Vertx vertx, VertxTestContext context) {
+        final JsonObject stats = JsonObject.of("albums", 11, "songs", 150, "artists", 6, "duration", 38167, "size", 0);
+        databaseService.refreshCatalog()
+                       .compose(__ -> Future.all(databaseService.albums(), databaseService.album(10)))
+                       .compose(result -> {
+                           context.verify(() -> assertEquals(vertx.fileSystem().readFileBlocking("fixtures/db/albums.json").toString().trim(),
+                                                             Json.encode(result.resultAt(0))));
+                           final Album album = result.resultAt(1);
+                           return databaseService.removeSongs(album.songs().stream().map(Song::path).toList());
+                       })
+                       // snapshot is kept until the catalog is refreshed
+                       .compose(__ -> databaseService.stats())
+                       .compose(result -> {
+                           context.verify(() -> assertEquals(stats, result));
+                           return databaseService.refreshCatalog();
+                       })
+                       .compose(__ -> databaseService.stats())
+                       .onSuccess(result -> context.verify(() -> {
+                           assertEquals(JsonObject.of("albums", 10, "songs", 116, "artists", 6, "duration", 30647, "size", 0), result);
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifyRefreshCatalogServesWrites(VertxTestContext context) {
+        databaseService.refreshCatalog()
+                       .compose(__ -> databaseService.scan(List.of(albumData("Aa", "PATH_AA"))))
+                       .compose(__ -> databaseService.refreshCatalog())
+                       .compose(__ -> databaseService.albums())
+                       .onSuccess(albums -> context.verify(() -> {
+                           assertEquals(12, albums.size());
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifyResultCache(VertxTestContext context) {
+        databaseService.albumsForGenre(2)
+                       .compose(first -> databaseService.albumsForGenre(2).map(second -> {
+                           context.verify(() -> assertSame(first, second));
+                           return first;
+                       }))
+                       .compose(first -> databaseService.refreshCatalog()
+                                                        .compose(__ -> databaseService.albumsForGenre(2))
+                                                        .map(refreshed -> {
+                                                            context.verify(() -> {
+                                                                assertNotSame(first, refreshed);
+                                                                assertEquals(first, refreshed);
+                                                            });
+                                                            return refreshed;
+                                                        }))
+                       .compose(__ -> databaseService.clearDatabase())
+                       .compose(__ -> databaseService.albumsForGenre(2))
+                       .onSuccess(result -> context.verify(() -> {
+                           assertTrue(result.isEmpty());
                            context.completeNow();
                        }))
                        .onFailure(context::failNow);
     }
 
+    @Test
+    void verifyRebuild(Vertx vertx, VertxTestContext context) {
+        final AlbumData album = AlbumData.builder()
+                                         .name("RANDOM_NAME")
+                                         .date(LocalDate.now().toString())
+                                         .artist("RANDOM_ARTIST")
+                                         .songs(List.of(
+                                                 SongData.builder()
+                                                         .path("RANDOM_PATH")
+                                                         .artist("RANDOM_ARTIST")
+                                                         .album("RANDOM_NAME")
+                                                         .albumArtist("RANDOM_ARTIST")
+                                                         .title("RANDOM_TITLE")
+                                                         .genre("RANDOM_GENRE")
+                                                         .date(LocalDate.now().toString())
+                                                         .composer("")
+                                                         .performer("")
+                                                         .disc(1)
+                                                         .trackNum(1)
+                                                         .duration(5)
+                                                         .build()
+                                         ))
+                                         .atime(System.currentTimeMillis())
+                                         .mtime(System.currentTimeMillis())
+                                         .totalDuration(5)
+                                         .build();
+
+        databaseService.beginRebuild()
+                       .compose(__ -> databaseService.rebuild(List.of(album)))
+                       .compose(__ -> Future.all(databaseService.isRebuilding(), databaseService.stats()))
+                       .compose(result -> {
+                           // live library is untouched until the rebuild is committed
+                           context.verify(() -> {
+                               assertTrue(result.<Boolean>resultAt(0));
+                               assertEquals(JsonObject.of("albums", 11, "songs", 150, "artists", 6, "duration", 38167, "size", 0),
+                                            result.resultAt(1));
+                           });
+                           return databaseService.commitRebuild();
+                       })
+                       .compose(__ -> Future.all(databaseService.isRebuilding(),
+                                                 databaseService.stats(),
+                                                 databaseService.songPaths()))
+                       .onSuccess(result -> context.verify(() -> {
+                           assertFalse(result.<Boolean>resultAt(0));
+                           assertEquals(JsonObject.of("albums", 1, "songs", 1, "artists", 1, "duration", 5, "size", 0), result.resultAt(1));
+                           assertEquals(List.of("RANDOM_PATH"), result.resultAt(2));
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifyScanKeepsCollidingAlbumsApart(VertxTestContext context) {
+        // "Aa" and "BB" share the same String hash code
+        final List<AlbumData> albums = List.of(albumData("Aa", "PATH_AA"), albumData("BB", "PATH_BB"));
+        databaseService.scan(albums)
+                       .compose(ids -> {
+                           context.verify(() -> assertEquals(2, Set.copyOf(ids).size()));
+                           return databaseService.scan(albums).map(rescanIds -> {
+                               context.verify(() -> assertEquals(ids, rescanIds));
+                               return rescanIds;
+                           });
+                       })
+                       .compose(ids -> databaseService.albumsFromIds(ids))
+                       .onSuccess(result -> context.verify(() -> {
+                           assertEquals(Set.of("Aa", "BB"), result.stream().map(Album::name).collect(Collectors.toSet()));
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifyRescanReplacesSongTags(VertxTestContext context) {
+        databaseService.scan(List.of(albumData("Aa", "RANDOM_GENRE", "RANDOM_ARTIST", List.of("PATH_AA"))))
+                       .compose(__ -> databaseService.scan(List.of(albumData("Aa", "OTHER_GENRE", "OTHER_ARTIST", List.of("PATH_AA")))))
+                       .compose(__ -> Future.all(databaseService.genres(), databaseService.artists(), databaseService.stats()))
+                       .onSuccess(result -> context.verify(() -> {
+                           final List<JsonObject> genres = result.resultAt(0);
+                           final List<JsonObject> artists = result.resultAt(1);
+                           assertTrue(genres.stream().anyMatch(genre -> genre.getString("name").equals("OTHER_GENRE")));
+                           assertFalse(genres.stream().anyMatch(genre -> genre.getString("name").equals("RANDOM_GENRE")));
+                           assertTrue(artists.stream().anyMatch(artist -> artist.getString("name").equals("OTHER_ARTIST")));
+                           assertFalse(artists.stream().anyMatch(artist -> artist.getString("name").equals("RANDOM_ARTIST")));
+                           assertEquals(7, result.<JsonObject>resultAt(2).getInteger("artists"));
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    @Test
+    void verifyAlbumsFollowMovedAndRemovedSongs(VertxTestContext context) {
+        databaseService.scan(List.of(albumData("Aa", "RANDOM_GENRE", "RANDOM_ARTIST", List.of("PATH_AA", "PATH_AB", "PATH_AC"))))
+                       .compose(ids -> databaseService.scan(List.of(albumData("BB", "RANDOM_GENRE", "RANDOM_ARTIST", List.of("PATH_AB"))))
+                                                      .compose(__ -> databaseService.removeSongs(List.of("PATH_AC")))
+                                                      .compose(__ -> databaseService.albumsFromIds(ids)))
+                       .onSuccess(albums -> context.verify(() -> {
+                           assertEquals(1, albums.size());
+                           assertEquals(List.of("PATH_AA"), albums.getFirst().songs().stream().map(Song::path).toList());
+                           assertEquals(5, albums.getFirst().totalDuration());
+                           context.completeNow();
+                       }))
+                       .onFailure(context::failNow);
+    }
+
+    private static AlbumData albumData(final String name, final String path) {
+        return albumData(name, "RANDOM_GENRE", "RANDOM_ARTIST", List.of(path));
+    }
+
+    private static AlbumData albumData(final String name, final String genre, final String artist, final List<String> paths) {
+        return AlbumData.builder()
+                        .name(name)
+                        .date("2024")
+                        .artist("RANDOM_ARTIST")
+                        .songs(paths.stream()
+                                    .map(path -> SongData.builder()
+                                                         .path(path)
+                                                         .artist(artist)
+                                                         .album(name)
+                                                         .albumArtist("RANDOM_ARTIST")
+                                                         .title(name)
+                                                         .genre(genre)
+                                                         .date("2024")
+                                                         .composer("")
+                                                         .performer("")
+                                                         .disc(1)
+                                                         .trackNum(1)
+                                                         .duration(5)
+                                                         .build())
+                                    .toList())
+                        .atime(System.currentTimeMillis())
+                        .mtime(System.currentTimeMillis())
+                        .totalDuration(5 * paths.size())
+                        .build();
+    }
+
     @Test
     void verifyClearDatabase(Vertx vertx, VertxTestContext context) {
         databaseService.clearDatabase()
@@ -292,11 +771,15 @@ class DatabaseVerticleTest {
                                                  databaseService.genres(),
                                                  databaseService.artists(),
                                                  databaseService.albumArtists()))
+                       .compose(result -> {
+                           context.verify(() -> assertEquals(0, result.list()
+                                                                      .stream()
+                                                                      .mapToInt(o -> ((List<?>) o).size())
+                                                                      .sum()));
+                           return databaseService.stats();
+                       })
                        .onSuccess(result -> context.verify(() -> {
-                           assertEquals(0, result.list()
-                                                 .stream()
-                                                 .mapToInt(o -> ((List<?>) o).size())
-                                                 .sum());
+                           assertEquals(JsonObject.of("albums", 0, "songs", 0, "artists", 0, "duration", 0, "size", 0), result);
                            context.completeNow();
                        }))
                        .onFailure(context::failNow);
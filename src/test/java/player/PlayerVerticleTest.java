@@ -13,6 +13,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -30,8 +31,10 @@ import java.util.Objects;
 import java.util.UUID;
 
 import static config.ServerConfig.DATABASE_CONFIG;
+import static enums.WorkerAction.PLAYBACK_STATE_UPDATE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(VertxExtension.class)
@@ -62,15 +65,16 @@ public class PlayerVerticleTest {
         final JsonObject config = new JsonObject().put(DATABASE_CONFIG, tempDbPath.toString());
 
         final DatabaseService databaseService = DatabaseService.create(vertx, config);
-        vertx.deployVerticle(new PlayerVerticle(databaseService, playlistService, audioPlayer),
-                             new DeploymentOptions().setThreadingModel(ThreadingModel.WORKER)
-                                                    .setWorkerPoolName("Player")
-                                                    .setConfig(config))
-             .onSuccess(__ -> {
-                 playerService = ServiceHelper.createServiceProxy(vertx, PlayerVerticle.class, PlayerService.class);
-                 context.completeNow();
-             })
-             .onFailure(context::failNow);
+        databaseService.initialization()
+                       .compose(__ -> vertx.deployVerticle(new PlayerVerticle(databaseService, playlistService, audioPlayer),
+                                                           new DeploymentOptions().setThreadingModel(ThreadingModel.WORKER)
+                                                                                  .setWorkerPoolName("Player")
+                                                                                  .setConfig(config)))
+                       .onSuccess(__ -> {
+                           playerService = ServiceHelper.createServiceProxy(vertx, PlayerVerticle.class, PlayerService.class);
+                           context.completeNow();
+                       })
+                       .onFailure(context::failNow);
     }
 
     @AfterEach
@@ -128,7 +132,7 @@ public class PlayerVerticleTest {
     @Test
     void verifyPlayAlbum(Vertx vertx, VertxTestContext context) {
         final String path = "/home/a/Music/Music/Muse/[Hi-Res][Muse]The Resistance/01-01-Muse-Uprising.flac";
-        playerService.playAlbum(627123027)
+        playerService.playAlbum(5)
                      .flatMap(__ -> playerService.songsInQueue())
                      .onSuccess(songs -> context.verify(() -> {
                          Mockito.verify(audioPlayer, Mockito.times(1)).play(Mockito.eq(path));
@@ -142,7 +146,7 @@ public class PlayerVerticleTest {
     void verifyNextSong(Vertx vertx, VertxTestContext context) {
         Mockito.when(audioPlayer.playbackStatus()).thenReturn(Future.succeededFuture(new PlaybackStatus(true, 1)));
         final String path = "/home/a/Music/Music/Muse/[Hi-Res][Muse]The Resistance/01-02-Muse-Resistance.flac";
-        playerService.playAlbum(627123027)
+        playerService.playAlbum(5)
                      .compose(__ -> playerService.nextSong())
                      .flatMap(__ -> playerService.playbackStatus())
                      .onSuccess(status -> context.verify(() -> {
@@ -158,7 +162,7 @@ public class PlayerVerticleTest {
     @Test
     void verifyNextSongReachEndWhenRepeatModeIsNone(Vertx vertx, VertxTestContext context) {
         Mockito.when(audioPlayer.playbackStatus()).thenReturn(Future.succeededFuture(new PlaybackStatus(true, 1)));
-        playerService.playAlbum(1375336646)
+        playerService.playAlbum(1)
                      .compose(__ -> playerService.nextSong())
                      .flatMap(__ -> playerService.playbackStatus())
                      .onSuccess(status -> context.verify(() -> {
@@ -175,7 +179,7 @@ public class PlayerVerticleTest {
     void verifyNextSongReachEndWhenRepeatModeIsSingle(Vertx vertx, VertxTestContext context) {
         Mockito.when(audioPlayer.playbackStatus()).thenReturn(Future.succeededFuture(new PlaybackStatus(true, 1)));
         final var path = "/home/a/Music/Music/0024522628.flac";
-        playerService.playAlbum(1375336646)
+        playerService.playAlbum(1)
                      .compose(__ -> playerService.cycleRepeatMode())
                      .compose(__ -> playerService.nextSong())
                      .flatMap(__ -> playerService.playbackStatus())
@@ -193,7 +197,7 @@ public class PlayerVerticleTest {
     void verifyNextSongReachEndWhenRepeatModeIsAll(Vertx vertx, VertxTestContext context) {
         Mockito.when(audioPlayer.playbackStatus()).thenReturn(Future.succeededFuture(new PlaybackStatus(true, 1)));
         final var path = "/home/a/Music/Music/0024522628.flac";
-        playerService.playAlbum(1375336646)
+        playerService.playAlbum(1)
                      .compose(__ -> playerService.cycleRepeatMode())
                      .compose(__ -> playerService.cycleRepeatMode())
                      .compose(__ -> playerService.nextSong())
@@ -212,7 +216,7 @@ public class PlayerVerticleTest {
     void verifyPrevSong(Vertx vertx, VertxTestContext context) {
         Mockito.when(audioPlayer.playbackStatus()).thenReturn(Future.succeededFuture(new PlaybackStatus(true, 1)));
         final String path = "/home/a/Music/Music/Muse/[Hi-Res][Muse]The Resistance/01-01-Muse-Uprising.flac";
-        playerService.playAlbum(627123027)
+        playerService.playAlbum(5)
                      .compose(__ -> playerService.prevSong())
                      .flatMap(__ -> playerService.playbackStatus())
                      .onSuccess(status -> context.verify(() -> {
@@ -229,7 +233,7 @@ public class PlayerVerticleTest {
     void verifyPlaySongAtPosition(Vertx vertx, VertxTestContext context) {
         Mockito.when(audioPlayer.playbackStatus()).thenReturn(Future.succeededFuture(new PlaybackStatus(true, 1)));
         final String path = "/home/a/Music/Music/Muse/[Hi-Res][Muse]The Resistance/01-03-Muse-Undisclosed_Desires.flac";
-        playerService.playAlbum(627123027)
+        playerService.playAlbum(5)
                      .compose(__ -> playerService.playSongInQueueAtPosition(2))
                      .flatMap(__ -> playerService.playbackStatus())
                      .onSuccess(status -> context.verify(() -> {
@@ -246,7 +250,7 @@ public class PlayerVerticleTest {
     void verifyPlaySongAtPositionZero(Vertx vertx, VertxTestContext context) {
         Mockito.when(audioPlayer.playbackStatus()).thenReturn(Future.succeededFuture(new PlaybackStatus(true, 1)));
         final String firstSongPath = "/home/a/Music/Music/Muse/[Hi-Res][Muse]The Resistance/01-01-Muse-Uprising.flac";
-        playerService.playAlbum(627123027)
+        playerService.playAlbum(5)
                      .compose(__ -> playerService.nextSong())
                      .compose(__ -> playerService.playSongInQueueAtPosition(0))
                      .flatMap(__ -> playerService.playbackStatus())
@@ -266,7 +270,7 @@ public class PlayerVerticleTest {
                 "/home/a/Music/Music/Radiohead/[Radiohead]KID A MNESIA/Radiohead - KID A MNESIA - 31 Pyramid Strings.flac",
                 "/home/a/Music/Music/0024522628.flac"
         );
-        playerService.playAlbum(627123027)
+        playerService.playAlbum(5)
                      .compose(__ -> playerService.addSongsToQueue(expectedSongs))
                      .flatMap(__ -> playerService.songsInQueue())
                      .onSuccess(songs -> context.verify(() -> {
@@ -280,7 +284,7 @@ public class PlayerVerticleTest {
     @Test
     void verifyRemoveSong(Vertx vertx, VertxTestContext context) {
         final String path = "/home/a/Music/Music/Muse/[Hi-Res][Muse]The Resistance/01-03-Muse-Undisclosed_Desires.flac";
-        playerService.playAlbum(627123027)
+        playerService.playAlbum(5)
                      .compose(__ -> playerService.removeSongFromQueue(2))
                      .flatMap(__ -> playerService.songsInQueue())
                      .onSuccess(songs -> context.verify(() -> {
@@ -296,8 +300,8 @@ public class PlayerVerticleTest {
 
     @Test
     void verifyRemoveLastSongLeavesEmptyQueue(Vertx vertx, VertxTestContext context) {
-        // Album 1375336646 has exactly 1 song
-        playerService.playAlbum(1375336646)
+        // Album 1 has exactly 1 song
+        playerService.playAlbum(1)
                      .compose(__ -> playerService.removeSongFromQueue(0))
                      .flatMap(__ -> playerService.songsInQueue())
                      .flatMap(songs -> {
@@ -313,7 +317,7 @@ public class PlayerVerticleTest {
 
     @Test
     void verifyWhenClearQueueForPlaybackStatus(Vertx vertx, VertxTestContext context) {
-        playerService.playAlbum(627123027)
+        playerService.playAlbum(5)
                      .flatMap(__ -> playerService.clearQueue())
                      .flatMap(__ -> playerService.playbackStatus())
                      .onSuccess(status -> context.verify(() -> {
@@ -328,7 +332,7 @@ public class PlayerVerticleTest {
 
     @Test
     void verifyWhenClearQueueForSongInQueue(Vertx vertx, VertxTestContext context) {
-        playerService.playAlbum(627123027)
+        playerService.playAlbum(5)
                      .flatMap(__ -> playerService.clearQueue())
                      .flatMap(__ -> playerService.songsInQueue())
                      .onSuccess(songs -> context.verify(() -> {
@@ -338,4 +342,26 @@ public class PlayerVerticleTest {
                      }))
                      .onFailure(context::failNow);
     }
+
+    @Test
+    void verifyPlaybackStateIsPublishedOnSongChange(Vertx vertx, VertxTestContext context) {
+        Mockito.when(audioPlayer.playbackStatus()).thenReturn(Future.succeededFuture(new PlaybackStatus(true, 3)));
+        final ArgumentCaptor<Runnable> changeSong = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(audioPlayer).startMonitor(Mockito.any(), changeSong.capture());
+
+        vertx.eventBus().<JsonObject>consumer(PLAYBACK_STATE_UPDATE.name(), message -> context.verify(() -> {
+            final JsonObject state = message.body();
+            assertTrue(state.getBoolean("playing"));
+            assertEquals(3, state.getInteger("elapsed"));
+            assertEquals(0, state.getInteger("loopId"));
+            assertEquals(1, state.getInteger("position"));
+            assertNotNull(state.getJsonObject("song"));
+            context.completeNow();
+        }));
+
+        playerService.playAlbum(5)
+                     .flatMap(__ -> playerService.nextSong())
+                     .onSuccess(__ -> changeSong.getValue().run())
+                     .onFailure(context::failNow);
+    }
 }
@@ -0,0 +1,104 @@
+package server;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+@ExtendWith(VertxExtension.class)
+class EventTopicTest {
+    private static final String ADDRESS = "EVENT_TOPIC_TEST";
+
+    @Test
+    void slowSubscriberDropsOldestEvents(Vertx vertx, VertxTestContext context) {
+        final EventTopic<Integer> topic = new EventTopic<>(vertx.eventBus(), ADDRESS);
+
+        // never requests until the fast subscriber is done, subscribed first so it sees each event first
+        final TestSubscriber<Integer> slow = new TestSubscriber<>(0);
+        topic.subscribe().subscribe(slow);
+
+        Flowable.fromPublisher(topic.subscribe())
+                .take(20)
+                .toList()
+                .subscribe(events -> context.verify(() -> {
+                    assertEquals(IntStream.range(0, 20).boxed().toList(), events);
+
+                    slow.request(Long.MAX_VALUE);
+                    slow.assertValueSequence(IntStream.range(4, 20).boxed().toList());
+                    context.completeNow();
+                }), context::failNow);
+
+        for (int i = 0; i < 20; i++) {
+            vertx.eventBus().publish(ADDRESS, i);
+        }
+    }
+
+    @Test
+    void subscribersShareEvents(Vertx vertx, VertxTestContext context) {
+        final EventTopic<String> topic = new EventTopic<>(vertx.eventBus(), ADDRESS);
+        final var checkpoint = context.checkpoint(2);
+
+        for (int i = 0; i < 2; i++) {
+            Flowable.fromPublisher(topic.subscribe())
+                    .take(2)
+                    .toList()
+                    .subscribe(events -> context.verify(() -> {
+                        assertEquals(List.of("a", "b"), events);
+                        checkpoint.flag();
+                    }), context::failNow);
+        }
+
+        vertx.eventBus().publish(ADDRESS, "a");
+        vertx.eventBus().publish(ADDRESS, "b");
+    }
+
+    @Test
+    void subscribersShareOneConsumer(Vertx vertx) {
+        final List<MessageConsumer<?>> consumers = new ArrayList<>();
+        final EventBus eventBus = spy(vertx.eventBus());
+        doAnswer(invocation -> {
+            final MessageConsumer<?> consumer = (MessageConsumer<?>) invocation.callRealMethod();
+            consumers.add(consumer);
+            return consumer;
+        }).when(eventBus).consumer(eq(ADDRESS), any());
+
+        final EventTopic<String> topic = new EventTopic<>(eventBus, ADDRESS);
+        final List<TestSubscriber<String>> subscribers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final TestSubscriber<String> subscriber = new TestSubscriber<>();
+            topic.subscribe().subscribe(subscriber);
+            subscribers.add(subscriber);
+        }
+        assertEquals(1, consumers.size());
+        assertTrue(consumers.getFirst().isRegistered());
+
+        subscribers.get(0).cancel();
+        subscribers.get(1).cancel();
+        assertTrue(consumers.getFirst().isRegistered());
+
+        subscribers.get(2).cancel();
+        assertFalse(consumers.getFirst().isRegistered());
+
+        // a later subscriber registers a fresh consumer
+        topic.subscribe().subscribe(new TestSubscriber<>());
+        assertEquals(2, consumers.size());
+        assertTrue(consumers.getLast().isRegistered());
+    }
+}